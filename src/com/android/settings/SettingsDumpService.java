@@ -33,7 +33,10 @@ import android.telephony.TelephonyManager;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.dashboard.ControllerLatencyHistogram;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
+import com.android.settings.slices.SliceBindLatencyHistogram;
+import com.android.settings.slices.SliceDataCache;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -58,6 +61,12 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_SLICE_DATA_CACHE = "slice_data_cache";
+    @VisibleForTesting
+    static final String KEY_SLICE_BIND_LATENCY = "slice_bind_latency";
+    @VisibleForTesting
+    static final String KEY_CONTROLLER_LATENCY = "controller_latency";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -77,6 +86,9 @@ public class SettingsDumpService extends Service {
             dump.put(KEY_MEMORY, dumpMemory());
             dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
             dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+            dump.put(KEY_SLICE_DATA_CACHE, SliceDataCache.getInstance().dump());
+            dump.put(KEY_SLICE_BIND_LATENCY, SliceBindLatencyHistogram.getInstance().dump());
+            dump.put(KEY_CONTROLLER_LATENCY, ControllerLatencyHistogram.getInstance().dump());
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -15,21 +15,33 @@
  */
 package com.android.settings.applications;
 
+import android.content.pm.ApplicationInfo;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settingslib.applications.ApplicationsState;
 import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import com.android.settingslib.applications.ApplicationsState.Session;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
 
 /**
  * Common base class for bridging information to ApplicationsState.
  */
 public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks {
 
+    // Package list changes within this delay are loaded together.
+    @VisibleForTesting
+    static final long LOAD_CHANGED_DELAY_MS = 100;
+    // Updating more apps than this one by one is slower than loading all of them at once.
+    @VisibleForTesting
+    static final int MAX_APPS_TO_UPDATE = 10;
+
     protected final ApplicationsState mAppState;
     protected final Session mAppSession;
     protected final Callback mCallback;
@@ -49,7 +61,9 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
     }
 
     public void resume() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        if (!mHandler.hasMessages(BackgroundHandler.MSG_LOAD_ALL)) {
+            mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        }
         mAppSession.onResume();
     }
 
@@ -67,12 +81,20 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
 
     @Override
     public void onPackageListChanged() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        loadChangedExtraInfo();
     }
 
     @Override
     public void onLoadEntriesCompleted() {
-        mHandler.sendEmptyMessage(BackgroundHandler.MSG_LOAD_ALL);
+        loadChangedExtraInfo();
+    }
+
+    private void loadChangedExtraInfo() {
+        if (!mHandler.hasMessages(BackgroundHandler.MSG_LOAD_ALL)
+                && !mHandler.hasMessages(BackgroundHandler.MSG_LOAD_CHANGED)) {
+            mHandler.sendEmptyMessageDelayed(BackgroundHandler.MSG_LOAD_CHANGED,
+                    LOAD_CHANGED_DELAY_MS);
+        }
     }
 
     @Override
@@ -129,6 +151,12 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
     private class BackgroundHandler extends Handler {
         private static final int MSG_LOAD_ALL = 1;
         private static final int MSG_FORCE_LOAD_PKG = 2;
+        private static final int MSG_LOAD_CHANGED = 3;
+
+        // ApplicationInfo of each app when its extra info was last loaded. ApplicationsState
+        // gives an app a new ApplicationInfo when its package changes.
+        private final IdentityHashMap<AppEntry, ApplicationInfo> mLoadedInfos =
+                new IdentityHashMap<>();
 
         public BackgroundHandler(Looper looper) {
             super(looper);
@@ -138,7 +166,13 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case MSG_LOAD_ALL:
+                    removeMessages(MSG_LOAD_CHANGED);
                     loadAllExtraInfo();
+                    setLoadedApps(mAppSession.getAllApps());
+                    mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
+                    break;
+                case MSG_LOAD_CHANGED:
+                    loadChangedApps();
                     mMainHandler.sendEmptyMessage(MainHandler.MSG_INFO_UPDATED);
                     break;
                 case MSG_FORCE_LOAD_PKG:
@@ -156,6 +190,40 @@ public abstract class AppStateBaseBridge implements ApplicationsState.Callbacks
                     break;
             }
         }
+
+        /**
+         * Loads the extra info of the apps added or changed since it was last loaded.
+         */
+        private void loadChangedApps() {
+            final ArrayList<AppEntry> apps = mAppSession.getAllApps();
+            if (apps == null) {
+                return;
+            }
+            final ArrayList<AppEntry> changedApps = new ArrayList<>();
+            for (AppEntry app : apps) {
+                if (mLoadedInfos.get(app) != app.info) {
+                    changedApps.add(app);
+                }
+            }
+            if (changedApps.size() > MAX_APPS_TO_UPDATE) {
+                loadAllExtraInfo();
+            } else {
+                for (AppEntry app : changedApps) {
+                    updateExtraInfo(app, app.info.packageName, app.info.uid);
+                }
+            }
+            setLoadedApps(apps);
+        }
+
+        private void setLoadedApps(List<AppEntry> apps) {
+            mLoadedInfos.clear();
+            if (apps == null) {
+                return;
+            }
+            for (AppEntry app : apps) {
+                mLoadedInfos.put(app, app.info);
+            }
+        }
     }
 
 
@@ -24,10 +24,14 @@ import android.os.UserManager;
 import android.text.format.DateUtils;
 import android.util.ArrayMap;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Switch;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settings.Utils;
 import com.android.settings.notification.NotificationBackend;
@@ -55,6 +59,10 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     private NotificationBackend mBackend;
     private static final int DAYS_TO_CHECK = 7;
 
+    // Notification usage of each user aggregated so far, so that each aggregation only reads
+    // the events since the previous one.
+    private static final SparseArray<UserUsage> sUserUsage = new SparseArray<>();
+
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
             Callback callback, IUsageStatsManager usageStatsManager,
             UserManager userManager, NotificationBackend backend) {
@@ -141,38 +149,43 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
 
         long now = System.currentTimeMillis();
         long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
-        for (int userId : mUserIds) {
-            UsageEvents events = null;
-            try {
-                events = mUsageStatsManager.queryEventsForUser(
-                        startTime, now, userId, mContext.getPackageName());
-            } catch (RemoteException e) {
-                e.printStackTrace();
-            }
-            if (events != null) {
-                UsageEvents.Event event = new UsageEvents.Event();
-                while (events.hasNextEvent()) {
-                    events.getNextEvent(event);
-                    NotificationsSentState stats =
-                            aggregatedStats.get(getKey(userId, event.getPackageName()));
-                    if (stats == null) {
-                        stats = new NotificationsSentState();
-                        aggregatedStats.put(getKey(userId, event.getPackageName()), stats);
-                    }
-
-                    if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
-                        if (event.getTimeStamp() > stats.lastSent) {
-                            stats.lastSent = event.getTimeStamp();
-                        }
-                        stats.sentCount++;
-                    }
-
+        synchronized (sUserUsage) {
+            for (int userId : mUserIds) {
+                UserUsage usage = sUserUsage.get(userId);
+                if (usage == null || usage.mQueriedUntil > now) {
+                    // First aggregation, or the clock went back: read the whole window.
+                    usage = new UserUsage();
+                    sUserUsage.put(userId, usage);
+                }
+                usage.expire(startTime);
+                UsageEvents events = null;
+                try {
+                    events = mUsageStatsManager.queryEventsForUser(
+                            Math.max(startTime, usage.mQueriedUntil), now, userId,
+                            mContext.getPackageName());
+                } catch (RemoteException e) {
+                    e.printStackTrace();
+                }
+                if (events != null) {
+                    usage.addEvents(events);
+                    usage.mQueriedUntil = now;
+                }
+                for (int i = 0; i < usage.mPackages.size(); i++) {
+                    aggregatedStats.put(getKey(userId, usage.mPackages.keyAt(i)),
+                            usage.mPackages.valueAt(i).getNotificationsSentState());
                 }
             }
         }
         return aggregatedStats;
     }
 
+    @VisibleForTesting
+    static void clearUsageCache() {
+        synchronized (sUserUsage) {
+            sUserUsage.clear();
+        }
+    }
+
     protected NotificationsSentState getAggregatedUsageEvents(int userId, String pkg) {
         NotificationsSentState stats = null;
 
@@ -336,6 +349,94 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         return !stats.blocked;
     }
 
+    /**
+     * Notification usage of one user's packages, from the events read so far.
+     */
+    private static class UserUsage {
+        final ArrayMap<String, PackageUsage> mPackages = new ArrayMap<>();
+        // End of the time range read so far.
+        long mQueriedUntil;
+
+        void addEvents(UsageEvents events) {
+            final UsageEvents.Event event = new UsageEvents.Event();
+            String lastPackageName = null;
+            PackageUsage packageUsage = null;
+            while (events.hasNextEvent()) {
+                events.getNextEvent(event);
+                final String packageName = event.getPackageName();
+                // Events share package name instances, and often follow events of the same
+                // package.
+                if (packageName != lastPackageName) {
+                    packageUsage = mPackages.get(packageName);
+                    if (packageUsage == null) {
+                        packageUsage = new PackageUsage();
+                        mPackages.put(packageName, packageUsage);
+                    }
+                    lastPackageName = packageName;
+                }
+                final long timeStamp = event.getTimeStamp();
+                if (event.getEventType() == UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                    packageUsage.addNotification(timeStamp);
+                }
+                // Packages with any event get a state, which decides whether they can be
+                // blocked from the list.
+                if (timeStamp > packageUsage.mLastEvent) {
+                    packageUsage.mLastEvent = timeStamp;
+                }
+            }
+        }
+
+        void expire(long startTime) {
+            for (int i = mPackages.size() - 1; i >= 0; i--) {
+                final PackageUsage packageUsage = mPackages.valueAt(i);
+                if (packageUsage.mLastEvent < startTime) {
+                    mPackages.removeAt(i);
+                } else {
+                    packageUsage.expire(startTime);
+                }
+            }
+        }
+    }
+
+    /**
+     * Notifications sent by one package, counted per hour so that they can be dropped as they
+     * get older than {@link #DAYS_TO_CHECK}.
+     */
+    private static class PackageUsage {
+        final SparseIntArray mSentPerHour = new SparseIntArray();
+        int mSentCount;
+        long mLastSent;
+        long mLastEvent;
+
+        void addNotification(long timeStamp) {
+            final int hour = (int) (timeStamp / DateUtils.HOUR_IN_MILLIS);
+            mSentPerHour.put(hour, mSentPerHour.get(hour) + 1);
+            mSentCount++;
+            if (timeStamp > mLastSent) {
+                mLastSent = timeStamp;
+            }
+        }
+
+        void expire(long startTime) {
+            // Hours are kept until they are entirely before the start time.
+            final int firstHour = (int) (startTime / DateUtils.HOUR_IN_MILLIS);
+            while (mSentPerHour.size() > 0 && mSentPerHour.keyAt(0) < firstHour) {
+                mSentCount -= mSentPerHour.valueAt(0);
+                mSentPerHour.removeAt(0);
+            }
+            if (mSentPerHour.size() == 0) {
+                mLastSent = 0;
+            }
+        }
+
+        NotificationsSentState getNotificationsSentState() {
+            final NotificationsSentState stats = new NotificationsSentState();
+            stats.sentCount = mSentCount;
+            stats.lastSent = mLastSent;
+            return stats;
+        }
+    }
+
     /**
      * NotificationsSentState contains how often an app sends notifications and how recently it sent
      * one.
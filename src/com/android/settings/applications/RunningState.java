@@ -39,10 +39,13 @@ import android.os.Message;
 import android.os.RemoteException;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.text.TextUtils;
 import android.text.format.Formatter;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settings.R;
 import com.android.settingslib.Utils;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -70,9 +73,16 @@ public class RunningState {
     static final int MSG_UPDATE_CONTENTS = 2;
     static final int MSG_REFRESH_UI = 3;
     static final int MSG_UPDATE_TIME = 4;
+    static final int MSG_CONTENTS_CHANGED = 5;
 
     static final long TIME_UPDATE_DELAY = 1000;
     static final long CONTENTS_UPDATE_DELAY = 2000;
+    // Polling slows down, doubling its delay up to MAX_CONTENTS_UPDATE_DELAY, once this many
+    // updates in a row found nothing to change.
+    static final int UNCHANGED_UPDATES_BEFORE_BACKOFF = 3;
+    static final long MAX_CONTENTS_UPDATE_DELAY = 30000;
+    // Delay to coalesce uid importance changes into a single update.
+    static final long CONTENTS_CHANGED_DELAY = 500;
 
     static final int MAX_SERVICES = 100;
 
@@ -140,6 +150,11 @@ public class RunningState {
 
     int mSequence = 0;
 
+    // Services and processes last reported by ActivityManager, to tell whether anything
+    // changed since the last update.
+    List<ActivityManager.RunningServiceInfo> mLastServices;
+    List<ActivityManager.RunningAppProcessInfo> mLastProcesses;
+
     final Comparator<RunningState.MergedItem> mBackgroundComparator
         = new Comparator<RunningState.MergedItem>() {
             @Override
@@ -223,6 +238,9 @@ public class RunningState {
 
     final HandlerThread mBackgroundThread;
     final class BackgroundHandler extends Handler {
+        // Number of updates in a row that found nothing to change.
+        private int mUnchangedUpdates;
+
         public BackgroundHandler(Looper looper) {
             super(looper);
         }
@@ -233,21 +251,31 @@ public class RunningState {
                 case MSG_RESET_CONTENTS:
                     reset();
                     break;
-                case MSG_UPDATE_CONTENTS:
-                    synchronized (mLock) {
-                        if (!mResumed) {
-                            return;
-                        }
-                    }
-                    Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
-                    mHandler.sendMessage(cmd);
+                case MSG_CONTENTS_CHANGED:
                     removeMessages(MSG_UPDATE_CONTENTS);
-                    msg = obtainMessage(MSG_UPDATE_CONTENTS);
-                    sendMessageDelayed(msg, CONTENTS_UPDATE_DELAY);
+                    updateContents();
+                    break;
+                case MSG_UPDATE_CONTENTS:
+                    updateContents();
                     break;
             }
         }
+
+        private void updateContents() {
+            synchronized (mLock) {
+                if (!mResumed) {
+                    return;
+                }
+            }
+            final boolean changed = update(mApplicationContext, mAm);
+            Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
+            cmd.arg1 = changed ? 1 : 0;
+            mHandler.sendMessage(cmd);
+            // Only contents actually changing bring polling back to its quickest.
+            mUnchangedUpdates = changed ? 0 : mUnchangedUpdates + 1;
+            removeMessages(MSG_UPDATE_CONTENTS);
+            sendEmptyMessageDelayed(MSG_UPDATE_CONTENTS, getContentsUpdateDelay(mUnchangedUpdates));
+        }
     };
 
     final BackgroundHandler mBackgroundHandler;
@@ -320,6 +348,17 @@ public class RunningState {
     private final UserManagerBroadcastReceiver mUmBroadcastReceiver =
             new UserManagerBroadcastReceiver();
 
+    // Processes starting, dying or changing importance change what is shown, update soon
+    // after instead of waiting for the next poll.
+    private final ActivityManager.OnUidImportanceListener mUidImportanceListener =
+            (uid, importance) -> {
+                if (!mBackgroundHandler.hasMessages(MSG_CONTENTS_CHANGED)) {
+                    mBackgroundHandler.sendEmptyMessageDelayed(MSG_CONTENTS_CHANGED,
+                            CONTENTS_CHANGED_DELAY);
+                }
+            };
+    private boolean mListeningUidImportance;
+
     // ----- DATA STRUCTURES -----
 
     static interface OnRefreshUiListener {
@@ -517,8 +556,14 @@ public class RunningState {
                 si.mPackageInfo = si.mServiceInfo.applicationInfo;
                 mServices.put(service.service, si);
             }
+            final ActivityManager.RunningServiceInfo lastService = si.mRunningService;
             si.mCurSeq = mCurSeq;
             si.mRunningService = service;
+            // The description only depends on the client, don't load it again if that didn't
+            // change.
+            final boolean sameClient = si.mDescription != null && lastService != service
+                    && TextUtils.equals(lastService.clientPackage, service.clientPackage)
+                    && lastService.clientLabel == service.clientLabel;
             long activeSince = service.restarting == 0 ? service.activeSince : -1;
             if (si.mActiveSince != activeSince) {
                 si.mActiveSince = activeSince;
@@ -529,6 +574,9 @@ public class RunningState {
                     si.mShownAsStarted = false;
                     changed = true;
                 }
+                if (sameClient) {
+                    return changed;
+                }
                 try {
                     Resources clientr = pm.getResourcesForApplication(service.clientPackage);
                     String label = clientr.getString(service.clientLabel);
@@ -542,6 +590,9 @@ public class RunningState {
                     si.mShownAsStarted = true;
                     changed = true;
                 }
+                if (sameClient) {
+                    return changed;
+                }
                 si.mDescription = context.getResources().getString(
                         R.string.service_started_by_app);
             }
@@ -805,8 +856,12 @@ public class RunningState {
             }
             if (!mBackgroundHandler.hasMessages(MSG_UPDATE_CONTENTS)) {
                 mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
+            } else {
+                // Don't wait for a poll that may have backed off.
+                updateNow();
             }
             mHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+            setListeningUidImportanceLocked(true);
         }
     }
 
@@ -839,9 +894,42 @@ public class RunningState {
             mResumed = false;
             mRefreshUiListener = null;
             mHandler.removeMessages(MSG_UPDATE_TIME);
+            setListeningUidImportanceLocked(false);
+        }
+    }
+
+    private void setListeningUidImportanceLocked(boolean listening) {
+        if (mListeningUidImportance == listening) {
+            return;
+        }
+        try {
+            if (listening) {
+                mAm.addOnUidImportanceListener(mUidImportanceListener,
+                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_CACHED);
+            } else {
+                mAm.removeOnUidImportanceListener(mUidImportanceListener);
+            }
+            mListeningUidImportance = listening;
+        } catch (SecurityException | IllegalArgumentException e) {
+            // Polling alone still keeps the contents up to date.
+            Log.w(TAG, "Unable to listen to uid importance", e);
         }
     }
 
+    /**
+     * @return how long to wait before polling again, after {@param unchangedUpdates} updates in a
+     * row found nothing to change.
+     */
+    @VisibleForTesting
+    static long getContentsUpdateDelay(int unchangedUpdates) {
+        long delay = CONTENTS_UPDATE_DELAY;
+        for (int i = UNCHANGED_UPDATES_BEFORE_BACKOFF; i <= unchangedUpdates
+                && delay < MAX_CONTENTS_UPDATE_DELAY; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, MAX_CONTENTS_UPDATE_DELAY);
+    }
+
     private boolean isInterestingProcess(ActivityManager.RunningAppProcessInfo pi) {
         if ((pi.flags&ActivityManager.RunningAppProcessInfo.FLAG_CANT_SAVE_STATE) != 0) {
             return true;
@@ -863,6 +951,57 @@ public class RunningState {
         mRunningProcesses.clear();
         mProcessItems.clear();
         mAllProcessItems.clear();
+        mLastServices = null;
+        mLastProcesses = null;
+    }
+
+    private boolean isSameSnapshot(List<ActivityManager.RunningServiceInfo> services,
+            List<ActivityManager.RunningAppProcessInfo> processes) {
+        // ActivityManager reports both in a stable order, something moving only costs a full
+        // update.
+        if (mLastServices == null || mLastProcesses == null || services == null
+                || processes == null || mLastServices.size() != services.size()
+                || mLastProcesses.size() != processes.size()) {
+            return false;
+        }
+        for (int i = 0; i < services.size(); i++) {
+            if (!isSameService(mLastServices.get(i), services.get(i))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < processes.size(); i++) {
+            if (!isSameProcess(mLastProcesses.get(i), processes.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSameService(ActivityManager.RunningServiceInfo lhs,
+            ActivityManager.RunningServiceInfo rhs) {
+        return Objects.equals(lhs.service, rhs.service)
+                && lhs.pid == rhs.pid
+                && lhs.uid == rhs.uid
+                && TextUtils.equals(lhs.process, rhs.process)
+                && lhs.foreground == rhs.foreground
+                && lhs.activeSince == rhs.activeSince
+                && lhs.started == rhs.started
+                && lhs.restarting == rhs.restarting
+                && lhs.flags == rhs.flags
+                && TextUtils.equals(lhs.clientPackage, rhs.clientPackage)
+                && lhs.clientLabel == rhs.clientLabel;
+    }
+
+    private static boolean isSameProcess(ActivityManager.RunningAppProcessInfo lhs,
+            ActivityManager.RunningAppProcessInfo rhs) {
+        return lhs.pid == rhs.pid
+                && lhs.uid == rhs.uid
+                && TextUtils.equals(lhs.processName, rhs.processName)
+                && lhs.flags == rhs.flags
+                && lhs.lru == rhs.lru
+                && lhs.importance == rhs.importance
+                && lhs.importanceReasonCode == rhs.importanceReasonCode
+                && lhs.importanceReasonPid == rhs.importanceReasonPid;
     }
 
     private void addOtherUserItem(Context context, ArrayList<MergedItem> newMergedItems,
@@ -897,8 +1036,6 @@ public class RunningState {
     private boolean update(Context context, ActivityManager am) {
         final PackageManager pm = context.getPackageManager();
 
-        mSequence++;
-        
         boolean changed = false;
 
         // Retrieve list of services, filtering out anything that definitely
@@ -932,6 +1069,180 @@ public class RunningState {
         // array for easy retrieval.
         List<ActivityManager.RunningAppProcessInfo> processes
                 = am.getRunningAppProcesses();
+
+        // If no service or process changed, the items built from them are still
+        // current, only their memory use needs to be updated.
+        if (!isSameSnapshot(services, processes)) {
+            mSequence++;
+            changed = updateItems(context, pm, services, processes);
+        }
+        mLastServices = services;
+        mLastProcesses = processes;
+
+        // Count number of interesting other (non-active) processes, and
+        // build a list of all processes we will retrieve memory for.
+        mAllProcessItems.clear();
+        mAllProcessItems.addAll(mProcessItems);
+        int numBackgroundProcesses = 0;
+        int numForegroundProcesses = 0;
+        int numServiceProcesses = 0;
+        int NRP = mRunningProcesses.size();
+        for (int i=0; i<NRP; i++) {
+            ProcessItem proc = mRunningProcesses.valueAt(i);
+            if (proc.mCurSeq != mSequence) {
+                // We didn't hit this process as a dependency on one
+                // of our active ones, so add it up if needed.
+                if (proc.mRunningProcessInfo.importance >=
+                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_BACKGROUND) {
+                    numBackgroundProcesses++;
+                    mAllProcessItems.add(proc);
+                } else if (proc.mRunningProcessInfo.importance <=
+                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
+                    numForegroundProcesses++;
+                    mAllProcessItems.add(proc);
+                } else {
+                    Log.i("RunningState", "Unknown non-service process: "
+                            + proc.mProcessName + " #" + proc.mPid);
+                }
+            } else {
+                numServiceProcesses++;
+            }
+        }
+        
+        long backgroundProcessMemory = 0;
+        long foregroundProcessMemory = 0;
+        long serviceProcessMemory = 0;
+        ArrayList<MergedItem> newBackgroundItems = null;
+        ArrayList<MergedItem> newUserBackgroundItems = null;
+        boolean diffUsers = false;
+        try {
+            final int numProc = mAllProcessItems.size();
+            int[] pids = new int[numProc];
+            for (int i=0; i<numProc; i++) {
+                pids[i] = mAllProcessItems.get(i).mPid;
+            }
+            long[] pss = ActivityManager.getService()
+                    .getProcessPss(pids);
+            int bgIndex = 0;
+            for (int i=0; i<pids.length; i++) {
+                ProcessItem proc = mAllProcessItems.get(i);
+                changed |= proc.updateSize(context, pss[i], mSequence);
+                if (proc.mCurSeq == mSequence) {
+                    serviceProcessMemory += proc.mSize;
+                } else if (proc.mRunningProcessInfo.importance >=
+                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_BACKGROUND) {
+                    backgroundProcessMemory += proc.mSize;
+                    MergedItem mergedItem;
+                    if (newBackgroundItems != null) {
+                        mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
+                        proc.mMergedItem.mProcess = proc;
+                        diffUsers |= mergedItem.mUserId != mMyUserId;
+                        newBackgroundItems.add(mergedItem);
+                    } else {
+                        if (bgIndex >= mBackgroundItems.size()
+                                || mBackgroundItems.get(bgIndex).mProcess != proc) {
+                            newBackgroundItems = new ArrayList<MergedItem>(numBackgroundProcesses);
+                            for (int bgi=0; bgi<bgIndex; bgi++) {
+                                mergedItem = mBackgroundItems.get(bgi);
+                                diffUsers |= mergedItem.mUserId != mMyUserId;
+                                newBackgroundItems.add(mergedItem);
+                            }
+                            mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
+                            proc.mMergedItem.mProcess = proc;
+                            diffUsers |= mergedItem.mUserId != mMyUserId;
+                            newBackgroundItems.add(mergedItem);
+                        } else {
+                            mergedItem = mBackgroundItems.get(bgIndex);
+                        }
+                    }
+                    mergedItem.update(context, true);
+                    mergedItem.updateSize(context);
+                    bgIndex++;
+                } else if (proc.mRunningProcessInfo.importance <=
+                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
+                    foregroundProcessMemory += proc.mSize;
+                }
+            }
+        } catch (RemoteException e) {
+        }
+        
+        if (newBackgroundItems == null) {
+            // One or more at the bottom may no longer exist.
+            if (mBackgroundItems.size() > numBackgroundProcesses) {
+                newBackgroundItems = new ArrayList<MergedItem>(numBackgroundProcesses);
+                for (int bgi=0; bgi<numBackgroundProcesses; bgi++) {
+                    MergedItem mergedItem = mBackgroundItems.get(bgi);
+                    diffUsers |= mergedItem.mUserId != mMyUserId;
+                    newBackgroundItems.add(mergedItem);
+                }
+            }
+        }
+
+        if (newBackgroundItems != null) {
+            // The background items have changed; we need to re-build the
+            // per-user items.
+            if (!diffUsers) {
+                // Easy: there are no other users, we can just use the same array.
+                newUserBackgroundItems = newBackgroundItems;
+            } else {
+                // We now need to re-build the per-user list so that background
+                // items for users are collapsed together.
+                newUserBackgroundItems = new ArrayList<MergedItem>();
+                final int NB = newBackgroundItems.size();
+                for (int i=0; i<NB; i++) {
+                    MergedItem mergedItem = newBackgroundItems.get(i);
+                    if (mergedItem.mUserId != mMyUserId) {
+                        addOtherUserItem(context, newUserBackgroundItems,
+                                mOtherUserBackgroundItems, mergedItem);
+                    } else {
+                        newUserBackgroundItems.add(mergedItem);
+                    }
+                }
+                // And user aggregated merged items need to be
+                // updated now that they have all of their children.
+                final int NU = mOtherUserBackgroundItems.size();
+                for (int i=0; i<NU; i++) {
+                    MergedItem user = mOtherUserBackgroundItems.valueAt(i);
+                    if (user.mCurSeq == mSequence) {
+                        user.update(context, true);
+                        user.updateSize(context);
+                    }
+                }
+            }
+        }
+
+        for (int i=0; i<mMergedItems.size(); i++) {
+            mMergedItems.get(i).updateSize(context);
+        }
+        
+        synchronized (mLock) {
+            mNumBackgroundProcesses = numBackgroundProcesses;
+            mNumForegroundProcesses = numForegroundProcesses;
+            mNumServiceProcesses = numServiceProcesses;
+            mBackgroundProcessMemory = backgroundProcessMemory;
+            mForegroundProcessMemory = foregroundProcessMemory;
+            mServiceProcessMemory = serviceProcessMemory;
+            if (newBackgroundItems != null) {
+                mBackgroundItems = newBackgroundItems;
+                mUserBackgroundItems = newUserBackgroundItems;
+                if (mWatchingBackgroundItems) {
+                    changed = true;
+                }
+            }
+            if (!mHaveData) {
+                mHaveData = true;
+                mLock.notifyAll();
+            }
+        }
+        
+        return changed;
+    }
+
+    private boolean updateItems(Context context, PackageManager pm,
+            List<ActivityManager.RunningServiceInfo> services,
+            List<ActivityManager.RunningAppProcessInfo> processes) {
+        boolean changed = false;
+        final int NS = services != null ? services.size() : 0;
         final int NP = processes != null ? processes.size() : 0;
         mTmpAppProcesses.clear();
         for (int i=0; i<NP; i++) {
@@ -1202,7 +1513,7 @@ public class RunningState {
                 
                 // Now add the services running in it.
                 MergedItem mergedItem = null;
-                boolean haveAllMerged = false;
+                boolean haveAllMerged = true;
                 boolean needDivider = false;
                 for (ServiceItem si : pi.mServices.values()) {
                     si.mNeedDivider = needDivider;
@@ -1226,11 +1537,12 @@ public class RunningState {
                         mergedItem.mServices.add(si);
                         si.mMergedItem = mergedItem;
                     }
-                    mergedItem.mProcess = pi;
-                    mergedItem.mOtherProcesses.clear();
-                    for (int mpi=firstProc; mpi<(mProcessItems.size()-1); mpi++) {
-                        mergedItem.mOtherProcesses.add(mProcessItems.get(mpi));
-                    }
+                }
+                // Processes the services depend on may change while the services don't.
+                mergedItem.mProcess = pi;
+                mergedItem.mOtherProcesses.clear();
+                for (int mpi=firstProc; mpi<(mProcessItems.size()-1); mpi++) {
+                    mergedItem.mOtherProcesses.add(mProcessItems.get(mpi));
                 }
                 
                 mergedItem.update(context, false);
@@ -1278,162 +1590,6 @@ public class RunningState {
             }
         }
         
-        // Count number of interesting other (non-active) processes, and
-        // build a list of all processes we will retrieve memory for.
-        mAllProcessItems.clear();
-        mAllProcessItems.addAll(mProcessItems);
-        int numBackgroundProcesses = 0;
-        int numForegroundProcesses = 0;
-        int numServiceProcesses = 0;
-        NRP = mRunningProcesses.size();
-        for (int i=0; i<NRP; i++) {
-            ProcessItem proc = mRunningProcesses.valueAt(i);
-            if (proc.mCurSeq != mSequence) {
-                // We didn't hit this process as a dependency on one
-                // of our active ones, so add it up if needed.
-                if (proc.mRunningProcessInfo.importance >=
-                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_BACKGROUND) {
-                    numBackgroundProcesses++;
-                    mAllProcessItems.add(proc);
-                } else if (proc.mRunningProcessInfo.importance <=
-                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
-                    numForegroundProcesses++;
-                    mAllProcessItems.add(proc);
-                } else {
-                    Log.i("RunningState", "Unknown non-service process: "
-                            + proc.mProcessName + " #" + proc.mPid);
-                }
-            } else {
-                numServiceProcesses++;
-            }
-        }
-        
-        long backgroundProcessMemory = 0;
-        long foregroundProcessMemory = 0;
-        long serviceProcessMemory = 0;
-        ArrayList<MergedItem> newBackgroundItems = null;
-        ArrayList<MergedItem> newUserBackgroundItems = null;
-        boolean diffUsers = false;
-        try {
-            final int numProc = mAllProcessItems.size();
-            int[] pids = new int[numProc];
-            for (int i=0; i<numProc; i++) {
-                pids[i] = mAllProcessItems.get(i).mPid;
-            }
-            long[] pss = ActivityManager.getService()
-                    .getProcessPss(pids);
-            int bgIndex = 0;
-            for (int i=0; i<pids.length; i++) {
-                ProcessItem proc = mAllProcessItems.get(i);
-                changed |= proc.updateSize(context, pss[i], mSequence);
-                if (proc.mCurSeq == mSequence) {
-                    serviceProcessMemory += proc.mSize;
-                } else if (proc.mRunningProcessInfo.importance >=
-                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_BACKGROUND) {
-                    backgroundProcessMemory += proc.mSize;
-                    MergedItem mergedItem;
-                    if (newBackgroundItems != null) {
-                        mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
-                        proc.mMergedItem.mProcess = proc;
-                        diffUsers |= mergedItem.mUserId != mMyUserId;
-                        newBackgroundItems.add(mergedItem);
-                    } else {
-                        if (bgIndex >= mBackgroundItems.size()
-                                || mBackgroundItems.get(bgIndex).mProcess != proc) {
-                            newBackgroundItems = new ArrayList<MergedItem>(numBackgroundProcesses);
-                            for (int bgi=0; bgi<bgIndex; bgi++) {
-                                mergedItem = mBackgroundItems.get(bgi);
-                                diffUsers |= mergedItem.mUserId != mMyUserId;
-                                newBackgroundItems.add(mergedItem);
-                            }
-                            mergedItem = proc.mMergedItem = new MergedItem(proc.mUserId);
-                            proc.mMergedItem.mProcess = proc;
-                            diffUsers |= mergedItem.mUserId != mMyUserId;
-                            newBackgroundItems.add(mergedItem);
-                        } else {
-                            mergedItem = mBackgroundItems.get(bgIndex);
-                        }
-                    }
-                    mergedItem.update(context, true);
-                    mergedItem.updateSize(context);
-                    bgIndex++;
-                } else if (proc.mRunningProcessInfo.importance <=
-                        ActivityManager.RunningAppProcessInfo.IMPORTANCE_VISIBLE) {
-                    foregroundProcessMemory += proc.mSize;
-                }
-            }
-        } catch (RemoteException e) {
-        }
-        
-        if (newBackgroundItems == null) {
-            // One or more at the bottom may no longer exist.
-            if (mBackgroundItems.size() > numBackgroundProcesses) {
-                newBackgroundItems = new ArrayList<MergedItem>(numBackgroundProcesses);
-                for (int bgi=0; bgi<numBackgroundProcesses; bgi++) {
-                    MergedItem mergedItem = mBackgroundItems.get(bgi);
-                    diffUsers |= mergedItem.mUserId != mMyUserId;
-                    newBackgroundItems.add(mergedItem);
-                }
-            }
-        }
-
-        if (newBackgroundItems != null) {
-            // The background items have changed; we need to re-build the
-            // per-user items.
-            if (!diffUsers) {
-                // Easy: there are no other users, we can just use the same array.
-                newUserBackgroundItems = newBackgroundItems;
-            } else {
-                // We now need to re-build the per-user list so that background
-                // items for users are collapsed together.
-                newUserBackgroundItems = new ArrayList<MergedItem>();
-                final int NB = newBackgroundItems.size();
-                for (int i=0; i<NB; i++) {
-                    MergedItem mergedItem = newBackgroundItems.get(i);
-                    if (mergedItem.mUserId != mMyUserId) {
-                        addOtherUserItem(context, newUserBackgroundItems,
-                                mOtherUserBackgroundItems, mergedItem);
-                    } else {
-                        newUserBackgroundItems.add(mergedItem);
-                    }
-                }
-                // And user aggregated merged items need to be
-                // updated now that they have all of their children.
-                final int NU = mOtherUserBackgroundItems.size();
-                for (int i=0; i<NU; i++) {
-                    MergedItem user = mOtherUserBackgroundItems.valueAt(i);
-                    if (user.mCurSeq == mSequence) {
-                        user.update(context, true);
-                        user.updateSize(context);
-                    }
-                }
-            }
-        }
-
-        for (int i=0; i<mMergedItems.size(); i++) {
-            mMergedItems.get(i).updateSize(context);
-        }
-        
-        synchronized (mLock) {
-            mNumBackgroundProcesses = numBackgroundProcesses;
-            mNumForegroundProcesses = numForegroundProcesses;
-            mNumServiceProcesses = numServiceProcesses;
-            mBackgroundProcessMemory = backgroundProcessMemory;
-            mForegroundProcessMemory = foregroundProcessMemory;
-            mServiceProcessMemory = serviceProcessMemory;
-            if (newBackgroundItems != null) {
-                mBackgroundItems = newBackgroundItems;
-                mUserBackgroundItems = newUserBackgroundItems;
-                if (mWatchingBackgroundItems) {
-                    changed = true;
-                }
-            }
-            if (!mHaveData) {
-                mHaveData = true;
-                mLock.notifyAll();
-            }
-        }
-        
         return changed;
     }
     
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.content.pm.ApplicationInfo;
+import android.text.TextUtils;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A DiffCallback to calculate the difference between two {@link AppEntry} lists, as captured
+ * by {@link #snapshot(List, int)}.
+ *
+ * <p>{@link AppEntry} objects are shared and updated in place by ApplicationsState, so each list
+ * is compared through a snapshot of what its rows display. Rows are the same item if they are
+ * for the same package and uid. If only the summary of a row changed, e.g. its size or extra
+ * info, the change carries {@link #PAYLOAD_SUMMARY} so that only the summary is bound again.
+ */
+class AppEntryDiffCallback extends DiffUtil.Callback {
+
+    static final String PAYLOAD_SUMMARY = "summary";
+
+    private final Row[] mOldRows;
+    private final Row[] mNewRows;
+
+    AppEntryDiffCallback(Row[] oldRows, Row[] newRows) {
+        mOldRows = oldRows;
+        mNewRows = newRows;
+    }
+
+    /**
+     * @return what each of {@param entries} displays, with summaries for {@param sortMode}.
+     */
+    static Row[] snapshot(List<AppEntry> entries, int sortMode) {
+        if (entries == null) {
+            return new Row[0];
+        }
+        final int size = entries.size();
+        final Row[] rows = new Row[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = new Row(entries.get(i), sortMode);
+        }
+        return rows;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return mOldRows.length;
+    }
+
+    @Override
+    public int getNewListSize() {
+        return mNewRows.length;
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        final Row oldRow = mOldRows[oldItemPosition];
+        final Row newRow = mNewRows[newItemPosition];
+        if (oldRow.mPackageName == null || newRow.mPackageName == null) {
+            return oldRow.mId == newRow.mId;
+        }
+        return oldRow.mUid == newRow.mUid
+                && TextUtils.equals(oldRow.mPackageName, newRow.mPackageName);
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        final Row oldRow = mOldRows[oldItemPosition];
+        final Row newRow = mNewRows[newItemPosition];
+        return oldRow.hasSameTitle(newRow) && oldRow.hasSameSummary(newRow);
+    }
+
+    @Override
+    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+        // Only called for items whose contents changed.
+        if (mOldRows[oldItemPosition].hasSameTitle(mNewRows[newItemPosition])) {
+            return PAYLOAD_SUMMARY;
+        }
+        return null;
+    }
+
+    /**
+     * What a row of the list displays for an {@link AppEntry}.
+     */
+    static class Row {
+        private final long mId;
+        private final String mPackageName;
+        private final int mUid;
+        // Title, icon and disabled state.
+        private final ApplicationInfo mInfo;
+        private final boolean mEnabled;
+        private final int mEnabledSetting;
+        private final String mLabel;
+        // Summary and switch.
+        private final long mSize;
+        private final String mSizeStr;
+        private final String mInternalSizeStr;
+        private final String mExternalSizeStr;
+        private final Object mExtraInfo;
+        private final int mSortMode;
+
+        Row(AppEntry entry, int sortMode) {
+            synchronized (entry) {
+                mId = entry.id;
+                mInfo = entry.info;
+                mPackageName = mInfo != null ? mInfo.packageName : null;
+                mUid = mInfo != null ? mInfo.uid : -1;
+                mEnabled = mInfo != null && mInfo.enabled;
+                mEnabledSetting = mInfo != null ? mInfo.enabledSetting : 0;
+                mLabel = entry.label;
+                mSize = entry.size;
+                mSizeStr = entry.sizeStr;
+                mInternalSizeStr = entry.internalSizeStr;
+                mExternalSizeStr = entry.externalSizeStr;
+                mExtraInfo = entry.extraInfo;
+            }
+            mSortMode = sortMode;
+        }
+
+        private boolean hasSameTitle(Row other) {
+            return mInfo == other.mInfo
+                    && mEnabled == other.mEnabled
+                    && mEnabledSetting == other.mEnabledSetting
+                    && TextUtils.equals(mLabel, other.mLabel);
+        }
+
+        private boolean hasSameSummary(Row other) {
+            // Bridges replace extra info when it changes, compare by identity.
+            return mExtraInfo == other.mExtraInfo
+                    && mSortMode == other.mSortMode
+                    && mSize == other.mSize
+                    && Objects.equals(mSizeStr, other.mSizeStr)
+                    && Objects.equals(mInternalSizeStr, other.mInternalSizeStr)
+                    && Objects.equals(mExternalSizeStr, other.mExternalSizeStr);
+        }
+    }
+}
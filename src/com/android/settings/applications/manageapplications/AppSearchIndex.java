@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.icu.lang.UCharacter;
+import android.icu.text.Transliterator;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Search index over a list of {@link AppEntry}, built once per list, matching queries against
+ * labels and package names normalized ahead of time.
+ *
+ * <p>Labels and queries are case folded, stripped of accents and transliterated to Latin, so
+ * that e.g. "cafe" matches "Café". A label matches if it contains the query, as it did before
+ * the index existed. A package name matches if it starts with the query, and only for queries
+ * containing a '.', since every package would otherwise match queries such as "com" or "an".
+ *
+ * <p>When a query extends the previous one, only the entries matching the previous query are
+ * searched again.
+ */
+class AppSearchIndex {
+
+    private static final String TAG = "AppSearchIndex";
+    private static final String TRANSLITERATOR_ID = "Any-Latin; Latin-ASCII";
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{Mn}+");
+
+    private final List<AppEntry> mEntries;
+    private final String[] mLabels;
+    private final String[] mPackageNames;
+    private final Transliterator mTransliterator;
+
+    // Previous query, and indexes of the entries it matched.
+    private String mLastQuery;
+    private int[] mLastMatches;
+    private int mLastMatchCount;
+
+    @WorkerThread
+    AppSearchIndex(List<AppEntry> entries) {
+        mEntries = entries;
+        mTransliterator = createTransliterator();
+        final int size = entries.size();
+        mLabels = new String[size];
+        mPackageNames = new String[size];
+        for (int i = 0; i < size; i++) {
+            final AppEntry entry = entries.get(i);
+            mLabels[i] = normalize(entry.label);
+            mPackageNames[i] = entry.info != null ? normalize(entry.info.packageName) : "";
+        }
+    }
+
+    /**
+     * @return the list this index was built for.
+     */
+    List<AppEntry> getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * @return the entries matching {@param query}, in list order.
+     */
+    @WorkerThread
+    synchronized ArrayList<AppEntry> search(String query) {
+        final String normalizedQuery = normalize(query);
+        final boolean matchPackageName = normalizedQuery.indexOf('.') >= 0;
+
+        final int[] candidates;
+        final int candidateCount;
+        if (mLastQuery != null && normalizedQuery.startsWith(mLastQuery)
+                && matchPackageName == (mLastQuery.indexOf('.') >= 0)) {
+            // Anything matching the longer query matches the previous one too.
+            candidates = mLastMatches;
+            candidateCount = mLastMatchCount;
+        } else {
+            candidates = null;
+            candidateCount = mEntries.size();
+        }
+
+        final int[] matches = new int[candidateCount];
+        int matchCount = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            final int index = candidates != null ? candidates[i] : i;
+            if (mLabels[index].contains(normalizedQuery)
+                    || (matchPackageName && mPackageNames[index].startsWith(normalizedQuery))) {
+                matches[matchCount++] = index;
+            }
+        }
+        mLastQuery = normalizedQuery;
+        mLastMatches = matches;
+        mLastMatchCount = matchCount;
+
+        final ArrayList<AppEntry> result = new ArrayList<>(matchCount);
+        for (int i = 0; i < matchCount; i++) {
+            result.add(mEntries.get(matches[i]));
+        }
+        return result;
+    }
+
+    @VisibleForTesting
+    String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isAscii(text)) {
+            return UCharacter.foldCase(text, true /* defaultmapping */);
+        }
+        String result = text;
+        if (mTransliterator != null) {
+            result = mTransliterator.transliterate(result);
+        }
+        result = DIACRITICS.matcher(Normalizer.normalize(result, Normalizer.Form.NFD))
+                .replaceAll("");
+        return UCharacter.foldCase(result, true /* defaultmapping */);
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Transliterator createTransliterator() {
+        try {
+            return Transliterator.getInstance(TRANSLITERATOR_ID);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Transliteration unavailable, matching without it", e);
+            return null;
+        }
+    }
+}
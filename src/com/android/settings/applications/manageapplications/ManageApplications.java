@@ -65,6 +65,7 @@ import android.widget.Spinner;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -123,6 +124,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -930,6 +932,10 @@ public class ManageApplications extends InstrumentedFragment
         private AppFilterItem mAppFilter;
         private ArrayList<ApplicationsState.AppEntry> mEntries;
         private ArrayList<ApplicationsState.AppEntry> mOriginalEntries;
+        // What the RecyclerView was last told mEntries shows, the base of the next diff.
+        private volatile AppEntryDiffCallback.Row[] mRows = new AppEntryDiffCallback.Row[0];
+        // Whether the RecyclerView was last told of an extra view after the rows.
+        private boolean mRowsHaveExtraView;
         private boolean mResumed;
         private int mLastSortMode = -1;
         private int mWhichSize = SIZE_TOTAL;
@@ -1164,11 +1170,16 @@ public class ManageApplications extends InstrumentedFragment
 
             filterObj = new CompoundFilter(filterObj, ApplicationsState.FILTER_NOT_HIDE);
             AppFilter finalFilterObj = filterObj;
+            final int filterType = mAppFilter.getFilterType();
+            final int sortMode = mLastSortMode;
+            final AppEntryDiffCallback.Row[] baseRows = mRows;
             ThreadUtils.postOnBackgroundThread(() -> {
                 final ArrayList<AppEntry> entries = mSession.rebuild(finalFilterObj,
                         comparatorObj, false);
                 if (entries != null) {
-                    ThreadUtils.postOnMainThread(() -> onRebuildComplete(entries));
+                    final EntriesUpdate update = EntriesUpdate.compute(baseRows,
+                            removeDuplicateIfNeeded(filterType, entries), sortMode);
+                    ThreadUtils.postOnMainThread(() -> onEntriesRebuilt(update));
                 }
             });
         }
@@ -1196,7 +1207,16 @@ public class ManageApplications extends InstrumentedFragment
             return info1.packageName.equals(info2.packageName);
         }
 
-        private ArrayList<ApplicationsState.AppEntry> removeDuplicateIgnoringUser(
+        private static ArrayList<ApplicationsState.AppEntry> removeDuplicateIfNeeded(
+                int filterType, ArrayList<ApplicationsState.AppEntry> entries) {
+            if (entries != null && (filterType == FILTER_APPS_POWER_WHITELIST
+                    || filterType == FILTER_APPS_POWER_WHITELIST_ALL)) {
+                return removeDuplicateIgnoringUser(entries);
+            }
+            return entries;
+        }
+
+        private static ArrayList<ApplicationsState.AppEntry> removeDuplicateIgnoringUser(
                 ArrayList<ApplicationsState.AppEntry> entries) {
             int size = entries.size();
             // returnList will not have more entries than entries
@@ -1218,17 +1238,19 @@ public class ManageApplications extends InstrumentedFragment
 
         @Override
         public void onRebuildComplete(ArrayList<AppEntry> entries) {
+            // Not diffed against the current rows, so every row is bound again.
+            entries = removeDuplicateIfNeeded(mAppFilter.getFilterType(), entries);
+            onEntriesRebuilt(new EntriesUpdate(entries,
+                    AppEntryDiffCallback.snapshot(entries, mLastSortMode),
+                    null /* baseRows */, null /* diffResult */));
+        }
+
+        private void onEntriesRebuilt(EntriesUpdate update) {
             if (DEBUG) {
                 Log.d(TAG, "onRebuildComplete");
             }
-            final int filterType = mAppFilter.getFilterType();
-            if (filterType == FILTER_APPS_POWER_WHITELIST ||
-                    filterType == FILTER_APPS_POWER_WHITELIST_ALL) {
-                entries = removeDuplicateIgnoringUser(entries);
-            }
-            mEntries = entries;
-            mOriginalEntries = entries;
-            notifyDataSetChanged();
+            mOriginalEntries = update.mEntries;
+            dispatchEntriesUpdate(update);
             if (getItemCount() == 0) {
                 mManageApplications.mRecyclerView.setVisibility(View.GONE);
                 mManageApplications.mEmptyView.setVisibility(View.VISIBLE);
@@ -1264,6 +1286,27 @@ public class ManageApplications extends InstrumentedFragment
             mManageApplications.setHasInstant(mState.haveInstantApps());
         }
 
+        /**
+         * Sets mEntries to those of {@param update} and notifies the RecyclerView, only about the
+         * rows that changed if the difference was computed from the rows it shows.
+         *
+         * <p>The difference doesn't account for the extra view, nor for no row being shown at all
+         * before the first entries, so the whole list is refreshed when either changes.
+         */
+        private void dispatchEntriesUpdate(EntriesUpdate update) {
+            final boolean hadEntries = mEntries != null;
+            mEntries = update.mEntries;
+            final boolean hasExtraView = hasExtraView();
+            if (hadEntries && hasExtraView == mRowsHaveExtraView && update.mDiffResult != null
+                    && update.mBaseRows == mRows) {
+                update.mDiffResult.dispatchUpdatesTo(this);
+            } else {
+                notifyDataSetChanged();
+            }
+            mRows = update.mRows;
+            mRowsHaveExtraView = hasExtraView;
+        }
+
         @VisibleForTesting
         void updateLoading() {
             final boolean appLoaded = mHasReceivedLoadEntries && mSession.getAllApps().size() != 0;
@@ -1385,6 +1428,22 @@ public class ManageApplications extends InstrumentedFragment
                     && !mBackend.isDefaultActiveApp(entry.info.packageName);
         }
 
+        @Override
+        public void onBindViewHolder(ApplicationViewHolder holder, int position,
+                List<Object> payloads) {
+            if (payloads.isEmpty() || position >= getApplicationCount()
+                    || !payloads.stream().allMatch(AppEntryDiffCallback.PAYLOAD_SUMMARY::equals)) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+            // Only the summary changed, leave the title and icon alone.
+            final ApplicationsState.AppEntry entry = mEntries.get(position);
+            synchronized (entry) {
+                updateSummary(holder, entry);
+                updateSwitch(holder, entry);
+            }
+        }
+
         @Override
         public void onBindViewHolder(ApplicationViewHolder holder, int position) {
             if (mEntries != null && mExtraViewController != null && position == mEntries.size()) {
@@ -1497,35 +1556,67 @@ public class ManageApplications extends InstrumentedFragment
             }
         }
 
+        /**
+         * A list of entries to show, and how it differs from the rows it was computed against.
+         */
+        private static class EntriesUpdate {
+            final ArrayList<ApplicationsState.AppEntry> mEntries;
+            final AppEntryDiffCallback.Row[] mRows;
+            final AppEntryDiffCallback.Row[] mBaseRows;
+            final DiffUtil.DiffResult mDiffResult;
+
+            EntriesUpdate(ArrayList<ApplicationsState.AppEntry> entries,
+                    AppEntryDiffCallback.Row[] rows, AppEntryDiffCallback.Row[] baseRows,
+                    DiffUtil.DiffResult diffResult) {
+                mEntries = entries;
+                mRows = rows;
+                mBaseRows = baseRows;
+                mDiffResult = diffResult;
+            }
+
+            @WorkerThread
+            static EntriesUpdate compute(AppEntryDiffCallback.Row[] baseRows,
+                    ArrayList<ApplicationsState.AppEntry> entries, int sortMode) {
+                final AppEntryDiffCallback.Row[] rows =
+                        AppEntryDiffCallback.snapshot(entries, sortMode);
+                return new EntriesUpdate(entries, rows, baseRows,
+                        DiffUtil.calculateDiff(new AppEntryDiffCallback(baseRows, rows)));
+            }
+        }
+
         /**
          * An array filter that constrains the content of the array adapter with a substring.
          * Item that does not contains the specified substring will be removed from the list.</p>
+         *
+         * @see AppSearchIndex
          */
         private class SearchFilter extends Filter {
+            // Index of the entries last searched, only used on the filter thread.
+            private AppSearchIndex mSearchIndex;
+
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final ArrayList<ApplicationsState.AppEntry> entries = mOriginalEntries;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
                 if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                    matchedEntries = entries;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
+                    // Entries are replaced as a whole on rebuild, index each list once.
+                    if (mSearchIndex == null || mSearchIndex.getEntries() != entries) {
+                        mSearchIndex = new AppSearchIndex(entries);
                     }
+                    matchedEntries = mSearchIndex.search(query.toString());
                 }
                 final FilterResults results = new FilterResults();
-                results.values = matchedEntries;
+                results.values = EntriesUpdate.compute(mRows, matchedEntries, mLastSortMode);
                 results.count = matchedEntries.size();
                 return results;
             }
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                mEntries = (ArrayList<ApplicationsState.AppEntry>) results.values;
-                notifyDataSetChanged();
+                dispatchEntriesUpdate((EntriesUpdate) results.values);
             }
         }
     }
@@ -35,6 +35,7 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.R;
@@ -51,21 +52,35 @@ import com.android.settingslib.utils.ThreadUtils;
 import com.android.settingslib.widget.LayoutPreference;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class adds a header with device name and status (connected/disconnected, etc.).
+ *
+ * <p>The device icons are loaded as ui blocker work while the page loads, so that the header
+ * shows up with them instead of filling them in one by one.
  */
 public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceController implements
-        LifecycleObserver, OnStart, OnStop, OnDestroy, CachedBluetoothDevice.Callback {
+        LifecycleObserver, OnStart, OnStop, OnDestroy, CachedBluetoothDevice.Callback,
+        BasePreferenceController.BackgroundUiBlocker {
     private static final String TAG = "AdvancedBtHeaderCtrl";
+    // The icons are only cosmetic, the page shouldn't wait long for them.
+    private static final long ICON_DEADLINE_MILLIS = 150;
+    private static final int[] ICON_META_KEYS = {
+            BluetoothDevice.METADATA_MAIN_ICON,
+            BluetoothDevice.METADATA_UNTETHERED_LEFT_ICON,
+            BluetoothDevice.METADATA_UNTETHERED_CASE_ICON,
+            BluetoothDevice.METADATA_UNTETHERED_RIGHT_ICON};
 
     @VisibleForTesting
     LayoutPreference mLayoutPreference;
     @VisibleForTesting
     final Map<String, Bitmap> mIconCache;
     private CachedBluetoothDevice mCachedDevice;
+    // Whether the ui blocker work loaded the icons, before which they aren't loaded one by one.
+    @VisibleForTesting
+    volatile boolean mIconsLoaded;
     @VisibleForTesting
     BluetoothAdapter mBluetoothAdapter;
     @VisibleForTesting
@@ -84,7 +99,7 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
     public AdvancedBluetoothDetailsHeaderController(Context context, String prefKey) {
         super(context, prefKey);
         mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
-        mIconCache = new HashMap<>();
+        mIconCache = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -105,6 +120,48 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
         refresh();
     }
 
+    @Override
+    public void updateState(Preference preference) {
+        refresh();
+    }
+
+    @Override
+    public long getBlockerDeadlineMillis() {
+        return ICON_DEADLINE_MILLIS;
+    }
+
+    @Override
+    public void doBlockerWork() {
+        if (mCachedDevice != null && isAvailable()) {
+            final BluetoothDevice bluetoothDevice = mCachedDevice.getDevice();
+            for (int iconMetaKey : ICON_META_KEYS) {
+                final String iconUri = BluetoothUtils.getStringMetaData(bluetoothDevice,
+                        iconMetaKey);
+                if (iconUri != null && !mIconCache.containsKey(iconUri)) {
+                    final Bitmap bitmap = loadIcon(iconUri);
+                    if (bitmap != null) {
+                        mIconCache.put(iconUri, bitmap);
+                    }
+                }
+            }
+        }
+        mIconsLoaded = true;
+    }
+
+    @Override
+    public void showPlaceholder(Preference preference) {
+        if (mLayoutPreference == null) {
+            return;
+        }
+        // Keep the room of the icons still loading, rather than showing stale ones.
+        for (int layoutId : new int[]{R.id.layout_left, R.id.layout_middle, R.id.layout_right}) {
+            final View layout = mLayoutPreference.findViewById(layoutId);
+            if (layout != null) {
+                layout.findViewById(R.id.header_icon).setVisibility(View.INVISIBLE);
+            }
+        }
+    }
+
     @Override
     public void onStart() {
         if (!isAvailable()) {
@@ -245,30 +302,44 @@ public class AdvancedBluetoothDetailsHeaderController extends BasePreferenceCont
     }
 
     /**
-     * Update icon by {@code iconUri}. If icon exists in cache, use it; otherwise extract it
-     * from uri in background thread and update it in main thread.
+     * Update icon by {@code iconUri}. If icon exists in cache, use it; otherwise, once the ui
+     * blocker work loaded the known icons, extract it from uri in background thread and update
+     * it in main thread.
      */
     @VisibleForTesting
     void updateIcon(ImageView imageView, String iconUri) {
         if (mIconCache.containsKey(iconUri)) {
             imageView.setImageBitmap(mIconCache.get(iconUri));
+            imageView.setVisibility(View.VISIBLE);
+            return;
+        }
+        if (!mIconsLoaded) {
+            // doBlockerWork() is loading it, updateState() is called once it's done.
             return;
         }
 
         ThreadUtils.postOnBackgroundThread(() -> {
-            try {
-                final Bitmap bitmap = MediaStore.Images.Media.getBitmap(
-                        mContext.getContentResolver(), Uri.parse(iconUri));
+            final Bitmap bitmap = loadIcon(iconUri);
+            if (bitmap != null) {
                 ThreadUtils.postOnMainThread(() -> {
                     mIconCache.put(iconUri, bitmap);
                     imageView.setImageBitmap(bitmap);
+                    imageView.setVisibility(View.VISIBLE);
                 });
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to get bitmap for: " + iconUri);
             }
         });
     }
 
+    private Bitmap loadIcon(String iconUri) {
+        try {
+            return MediaStore.Images.Media.getBitmap(mContext.getContentResolver(),
+                    Uri.parse(iconUri));
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to get bitmap for: " + iconUri);
+            return null;
+        }
+    }
+
     @Override
     public void onDeviceAttributesChanged() {
         if (mCachedDevice != null) {
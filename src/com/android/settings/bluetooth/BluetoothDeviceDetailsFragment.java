@@ -40,10 +40,12 @@ import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.core.lifecycle.Lifecycle;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class BluetoothDeviceDetailsFragment extends RestrictedDashboardFragment {
     public static final String KEY_DEVICE_ADDRESS = "device_address";
+    private static final String KEY_ADVANCED_HEADER = "advanced_bluetooth_device_header";
     private static final String TAG = "BTDeviceDetailsFrg";
 
     @VisibleForTesting
@@ -123,6 +125,9 @@ public class BluetoothDeviceDetailsFragment extends RestrictedDashboardFragment
         use(BlockingSlicePrefController.class).setSliceUri(sliceEnabled
                 ? featureProvider.getBluetoothDeviceSettingsUri(mCachedDevice.getDevice())
                 : null);
+        // Reveal the slice along with the header above it, rather than ahead of its icons.
+        use(BlockingSlicePrefController.class).setBlockerDependencies(
+                Collections.singletonList(KEY_ADVANCED_HEADER));
     }
 
     @Override
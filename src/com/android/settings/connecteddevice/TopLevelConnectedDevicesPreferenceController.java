@@ -21,7 +21,12 @@ import android.content.Context;
 import com.android.settings.R;
 import com.android.settings.core.BasePreferenceController;
 
-public class TopLevelConnectedDevicesPreferenceController extends BasePreferenceController {
+public class TopLevelConnectedDevicesPreferenceController extends BasePreferenceController
+        implements BasePreferenceController.BackgroundStateComputer {
+
+    // Summary computed by computeState(), as checking for NFC and driving mode needs binder
+    // calls.
+    private volatile CharSequence mSummary;
 
     public TopLevelConnectedDevicesPreferenceController(Context context,
             String preferenceKey) {
@@ -35,8 +40,18 @@ public class TopLevelConnectedDevicesPreferenceController extends BasePreference
         : UNSUPPORTED_ON_DEVICE;
     }
 
+    @Override
+    public void computeState() {
+        mSummary = computeSummary();
+    }
+
     @Override
     public CharSequence getSummary() {
+        final CharSequence summary = mSummary;
+        return summary != null ? summary : computeSummary();
+    }
+
+    private CharSequence computeSummary() {
         return mContext.getText(
                 AdvancedConnectedDeviceController.getConnectedDevicesSummaryResourceId(mContext));
     }
@@ -21,6 +21,7 @@ import android.util.Log;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.dashboard.UiBlockerController;
 import com.android.settings.search.SearchIndexableRaw;
 import com.android.settings.slices.SliceData;
 import com.android.settings.slices.Sliceable;
@@ -28,8 +29,7 @@ import com.android.settingslib.core.AbstractPreferenceController;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -112,39 +112,22 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     /**
      * Instantiate a controller as specified controller type and user-defined key.
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This is done through {@link PreferenceControllerRegistry}, falling back to reflection. Do
+     * not use this method unless you know what you are doing.
      */
     public static BasePreferenceController createInstance(Context context,
             String controllerName, String key) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        return PreferenceControllerRegistry.createInstance(context, controllerName, key);
     }
 
     /**
      * Instantiate a controller as specified controller type.
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This is done through {@link PreferenceControllerRegistry}, falling back to reflection. Do
+     * not use this method unless you know what you are doing.
      */
     public static BasePreferenceController createInstance(Context context, String controllerName) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor = clazz.getConstructor(Context.class);
-            final Object[] params = new Object[]{context};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        return PreferenceControllerRegistry.createInstance(context, controllerName);
     }
 
     public BasePreferenceController(Context context, String preferenceKey) {
@@ -288,7 +271,56 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      * want to avoid janky animation(i.e. new preference is added in the middle of page).
      *
      * This music be used in {@link BasePreferenceController}
+     *
+     * @see com.android.settings.dashboard.UiBlockerController
      */
     public interface UiBlocker {
+        /**
+         * @return keys of the blockers that must finish before this one is revealed, and before
+         * its {@link BackgroundUiBlocker#doBlockerWork()} starts.
+         */
+        default List<String> getBlockerDependencies() {
+            return Collections.emptyList();
+        }
+
+        /**
+         * @return how long after the page starts loading it may stay hidden waiting for this
+         * blocker. Past it, the page is shown with a placeholder for this blocker.
+         */
+        default long getBlockerDeadlineMillis() {
+            return UiBlockerController.DEFAULT_DEADLINE_MILLIS;
+        }
+
+        /**
+         * Called on the main thread when the page is shown before this blocker finished, so that
+         * {@param preference} looks like it is still loading. The controller's
+         * {@code updateState(Preference)} is called once the blocker is revealed.
+         */
+        default void showPlaceholder(Preference preference) {
+        }
+    }
+
+    /**
+     * {@link UiBlocker} whose work is run by the page, on a bounded worker pool, instead of
+     * invoking {@link UiBlockListener} itself. The blocker is finished when
+     * {@link #doBlockerWork()} returns, and its {@code updateState(Preference)} is called again
+     * once revealed to bind the result.
+     *
+     * {@link #doBlockerWork()} must not touch the preference or any other view.
+     */
+    public interface BackgroundUiBlocker extends UiBlocker {
+        void doBlockerWork();
+    }
+
+    /**
+     * Used for {@link BasePreferenceController} whose state is expensive to compute, i.e. needs
+     * binder calls. {@link #computeState()} runs on a worker thread, concurrently with other
+     * controllers, before {@link #updateState(Preference)} applies the result on the main
+     * thread.
+     *
+     * {@link #computeState()} must not touch the preference or any other view.
+     */
+    public interface BackgroundStateComputer {
+        void computeState();
     }
 }
\ No newline at end of file
@@ -21,10 +21,17 @@ package com.android.settings.core;
  */
 public class FeatureFlags {
     public static final String AUDIO_SWITCHER_SETTINGS = "settings_audio_switcher";
+    public static final String CONTROLLER_LATENCY = "settings_controller_latency";
     public static final String DYNAMIC_SYSTEM = "settings_dynamic_system";
     public static final String HEARING_AID_SETTINGS = "settings_bluetooth_hearing_aid";
     public static final String MOBILE_NETWORK_V2 = "settings_mobile_network_v2";
     public static final String NETWORK_INTERNET_V2 = "settings_network_and_internet_v2";
+    public static final String PARALLEL_NON_INDEXABLE_KEYS =
+            "settings_parallel_non_indexable_keys";
+    public static final String PERSISTENT_TILE_CACHE = "settings_persistent_tile_cache";
+    public static final String PREFERENCE_METADATA_CACHE = "settings_preference_metadata_cache";
+    public static final String PARALLEL_SLICE_CONVERSION = "settings_parallel_slice_conversion";
+    public static final String SYNC_SLICE_BIND = "settings_sync_slice_bind";
     public static final String WIFI_DETAILS_DATAUSAGE_HEADER =
             "settings_wifi_details_datausage_header";
 }
@@ -23,6 +23,7 @@ import android.annotation.NonNull;
 import android.annotation.XmlRes;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -44,12 +45,32 @@ public class PreferenceControllerListHelper {
 
     private static final String TAG = "PrefCtrlListHelper";
 
+    /**
+     * Listener notified of each controller instantiated from xml.
+     */
+    public interface OnControllerCreatedListener {
+        /**
+         * Called when {@param controller} was instantiated, which took {@param durationNanos}.
+         */
+        void onControllerCreated(BasePreferenceController controller, long durationNanos);
+    }
+
     /**
      * Instantiates a list of controller based on xml definition.
      */
     @NonNull
     public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
             @XmlRes int xmlResId) {
+        return getPreferenceControllersFromXml(context, xmlResId, null /* listener */);
+    }
+
+    /**
+     * Instantiates a list of controller based on xml definition, and notifies {@param listener}
+     * of each controller instantiated, if not null.
+     */
+    @NonNull
+    public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
+            @XmlRes int xmlResId, OnControllerCreatedListener listener) {
         final List<BasePreferenceController> controllers = new ArrayList<>();
         List<Bundle> preferenceMetadata;
         try {
@@ -66,6 +87,7 @@ public class PreferenceControllerListHelper {
             if (TextUtils.isEmpty(controllerName)) {
                 continue;
             }
+            final long startTime = listener != null ? SystemClock.elapsedRealtimeNanos() : 0;
             BasePreferenceController controller;
             try {
                 controller = BasePreferenceController.createInstance(context, controllerName);
@@ -85,6 +107,10 @@ public class PreferenceControllerListHelper {
                     continue;
                 }
             }
+            if (listener != null) {
+                listener.onControllerCreated(controller,
+                        SystemClock.elapsedRealtimeNanos() - startTime);
+            }
             controllers.add(controller);
         }
         return controllers;
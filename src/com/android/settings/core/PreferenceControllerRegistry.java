@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.accessibility.TopLevelAccessibilityPreferenceController;
+import com.android.settings.accounts.TopLevelAccountEntryPreferenceController;
+import com.android.settings.connecteddevice.TopLevelConnectedDevicesPreferenceController;
+import com.android.settings.deviceinfo.TopLevelStoragePreferenceController;
+import com.android.settings.deviceinfo.aboutphone.TopLevelAboutDevicePreferenceController;
+import com.android.settings.display.TopLevelDisplayPreferenceController;
+import com.android.settings.fuelgauge.BatterySaverController;
+import com.android.settings.fuelgauge.TopLevelBatteryPreferenceController;
+import com.android.settings.fuelgauge.batterytip.BatteryTipPreferenceController;
+import com.android.settings.location.TopLevelLocationPreferenceController;
+import com.android.settings.network.AirplaneModePreferenceController;
+import com.android.settings.network.TopLevelNetworkEntryPreferenceController;
+import com.android.settings.security.TopLevelSecurityEntryPreferenceController;
+import com.android.settings.support.SupportPreferenceController;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of factories used to instantiate {@link BasePreferenceController} subclasses by class
+ * name, as declared in preference XML and in the slices index.
+ *
+ * <p>Controllers may register a constructor reference up front with
+ * {@link #registerFactory(String, ContextFactory)} or
+ * {@link #registerFactory(String, KeyFactory)}; the controllers of the homepage and of platform
+ * slices are registered by default. Any other controller is resolved through reflection once,
+ * after which the resolved constructor (or its absence) is remembered so later instantiations
+ * skip the class and constructor lookups.
+ */
+public class PreferenceControllerRegistry {
+
+    /**
+     * Creates a controller which only needs a {@link Context}.
+     */
+    public interface ContextFactory {
+        BasePreferenceController create(Context context);
+    }
+
+    /**
+     * Creates a controller for a preference key defined outside of the controller.
+     */
+    public interface KeyFactory {
+        BasePreferenceController create(Context context, String key);
+    }
+
+    private static final Map<String, ContextFactory> sContextFactories =
+            new ConcurrentHashMap<>();
+    private static final Map<String, KeyFactory> sKeyFactories = new ConcurrentHashMap<>();
+
+    // Controllers known not to have a constructor of the requested shape.
+    private static final Set<String> sMissingContextFactories = ConcurrentHashMap.newKeySet();
+    private static final Set<String> sMissingKeyFactories = ConcurrentHashMap.newKeySet();
+
+    static {
+        registerDefaultFactories();
+    }
+
+    public static void registerFactory(String controllerName, ContextFactory factory) {
+        sContextFactories.put(controllerName, factory);
+        sMissingContextFactories.remove(controllerName);
+    }
+
+    public static void registerFactory(String controllerName, KeyFactory factory) {
+        sKeyFactories.put(controllerName, factory);
+        sMissingKeyFactories.remove(controllerName);
+    }
+
+    /**
+     * Instantiates {@param controllerName} through its {@code (Context)} constructor.
+     *
+     * @throws IllegalStateException if the controller cannot be created this way.
+     */
+    public static BasePreferenceController createInstance(Context context,
+            String controllerName) {
+        ContextFactory factory = sContextFactories.get(controllerName);
+        if (factory == null) {
+            if (sMissingContextFactories.contains(controllerName)) {
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + controllerName);
+            }
+            try {
+                final Constructor<?> constructor =
+                        Class.forName(controllerName).getConstructor(Context.class);
+                factory = c -> (BasePreferenceController) newInstance(constructor, controllerName,
+                        c);
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                sMissingContextFactories.add(controllerName);
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + controllerName, e);
+            }
+            sContextFactories.put(controllerName, factory);
+        }
+        return factory.create(context);
+    }
+
+    /**
+     * Instantiates {@param controllerName} through its {@code (Context, String)} constructor.
+     *
+     * @throws IllegalStateException if the controller cannot be created this way.
+     */
+    public static BasePreferenceController createInstance(Context context,
+            String controllerName, String key) {
+        KeyFactory factory = sKeyFactories.get(controllerName);
+        if (factory == null) {
+            if (sMissingKeyFactories.contains(controllerName)) {
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + controllerName);
+            }
+            try {
+                final Constructor<?> constructor = Class.forName(controllerName)
+                        .getConstructor(Context.class, String.class);
+                factory = (c, k) -> (BasePreferenceController) newInstance(constructor,
+                        controllerName, c, k);
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                sMissingKeyFactories.add(controllerName);
+                throw new IllegalStateException(
+                        "Invalid preference controller: " + controllerName, e);
+            }
+            sKeyFactories.put(controllerName, factory);
+        }
+        return factory.create(context, key);
+    }
+
+    @VisibleForTesting
+    static boolean hasFactory(String controllerName) {
+        return sContextFactories.containsKey(controllerName)
+                || sKeyFactories.containsKey(controllerName);
+    }
+
+    /**
+     * Drops every factory and resolved constructor, leaving only the default factories.
+     */
+    @VisibleForTesting
+    static void clear() {
+        sContextFactories.clear();
+        sKeyFactories.clear();
+        sMissingContextFactories.clear();
+        sMissingKeyFactories.clear();
+        registerDefaultFactories();
+    }
+
+    /**
+     * Registers the controllers created on every launch of the homepage, see
+     * {@code top_level_settings.xml}, and on every bind of a platform slice.
+     */
+    private static void registerDefaultFactories() {
+        // Homepage
+        registerKeyFactory(TopLevelNetworkEntryPreferenceController.class,
+                TopLevelNetworkEntryPreferenceController::new);
+        registerKeyFactory(TopLevelConnectedDevicesPreferenceController.class,
+                TopLevelConnectedDevicesPreferenceController::new);
+        registerKeyFactory(TopLevelBatteryPreferenceController.class,
+                TopLevelBatteryPreferenceController::new);
+        registerKeyFactory(TopLevelDisplayPreferenceController.class,
+                TopLevelDisplayPreferenceController::new);
+        registerKeyFactory(TopLevelStoragePreferenceController.class,
+                TopLevelStoragePreferenceController::new);
+        registerKeyFactory(TopLevelLocationPreferenceController.class,
+                TopLevelLocationPreferenceController::new);
+        registerKeyFactory(TopLevelSecurityEntryPreferenceController.class,
+                TopLevelSecurityEntryPreferenceController::new);
+        registerKeyFactory(TopLevelAccountEntryPreferenceController.class,
+                TopLevelAccountEntryPreferenceController::new);
+        registerKeyFactory(TopLevelAccessibilityPreferenceController.class,
+                TopLevelAccessibilityPreferenceController::new);
+        registerKeyFactory(TopLevelAboutDevicePreferenceController.class,
+                TopLevelAboutDevicePreferenceController::new);
+        registerKeyFactory(SupportPreferenceController.class, SupportPreferenceController::new);
+
+        // Platform slices
+        registerKeyFactory(AirplaneModePreferenceController.class,
+                AirplaneModePreferenceController::new);
+        registerKeyFactory(BatteryTipPreferenceController.class,
+                BatteryTipPreferenceController::new);
+        registerFactory(BatterySaverController.class.getName(),
+                BatterySaverController::new);
+    }
+
+    /**
+     * Registers {@param factory} for {@param controllerClass}, which has no {@code (Context)}
+     * constructor, so callers probing for one do not fall back to reflection either.
+     */
+    private static void registerKeyFactory(Class<? extends BasePreferenceController>
+            controllerClass, KeyFactory factory) {
+        final String controllerName = controllerClass.getName();
+        sKeyFactories.put(controllerName, factory);
+        sMissingKeyFactories.remove(controllerName);
+        sMissingContextFactories.add(controllerName);
+    }
+
+    private static Object newInstance(Constructor<?> constructor, String controllerName,
+            Object... params) {
+        try {
+            return constructor.newInstance(params);
+        } catch (InstantiationException | IllegalArgumentException | InvocationTargetException
+                | IllegalAccessException e) {
+            throw new IllegalStateException(
+                    "Invalid preference controller: " + controllerName, e);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of {@link PreferenceXmlParserUtils#extractMetadata} results, keyed by xml
+ * resource id and metadata flags.
+ *
+ * <p>The cache lives in a single memory-mapped file. It is only valid for the build, Settings
+ * APK, locale and resource configuration it was written with; a file written for anything else
+ * is ignored and overwritten. Newly extracted metadata is kept in memory and written back in
+ * the background.
+ *
+ * <p>File layout, all integers big-endian:
+ * <pre>
+ * int magic, int formatVersion, string token, int entryCount,
+ * entryCount x (long key, int dataOffset),
+ * data: per entry, int bundleCount, bundleCount x (int fieldCount,
+ *       fieldCount x (string name, byte type, value))
+ * </pre>
+ * where a string is an int byte length (-1 for null) followed by UTF-8 bytes.
+ */
+public class PreferenceXmlMetadataCache {
+
+    private static final String TAG = "PrefXmlMetadataCache";
+
+    @VisibleForTesting
+    static final String CACHE_FILE_NAME = "preference_xml_metadata.bin";
+
+    private static final int MAGIC = 0x50584d43;
+    @VisibleForTesting
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_BOOLEAN = 3;
+
+    private static PreferenceXmlMetadataCache sSingleton;
+    private static String sApkToken;
+
+    private final AtomicFile mFile;
+    private final String mToken;
+    private final Map<Long, Integer> mOffsets = new HashMap<>();
+    private final Map<Long, List<Bundle>> mPending = new HashMap<>();
+    // Held for the whole of write(), so the file is never written by two threads at once.
+    private final Object mWriteLock = new Object();
+
+    private ByteBuffer mMappedData;
+    private boolean mWriteScheduled;
+
+    /**
+     * @return the cache for the current build and configuration of {@param context}.
+     */
+    public static synchronized PreferenceXmlMetadataCache getInstance(Context context) {
+        final String token = getToken(context);
+        if (sSingleton == null || !sSingleton.mToken.equals(token)) {
+            final File file = new File(context.getApplicationContext().getCacheDir(),
+                    CACHE_FILE_NAME);
+            sSingleton = new PreferenceXmlMetadataCache(file, token);
+        }
+        return sSingleton;
+    }
+
+    @VisibleForTesting
+    PreferenceXmlMetadataCache(File file, String token) {
+        mFile = new AtomicFile(file);
+        mToken = token;
+        setMappedFile(readFile());
+    }
+
+    /**
+     * @return a copy of the metadata cached for {@param xmlResId} and {@param flags}, or
+     * {@code null} if it was never extracted.
+     */
+    public synchronized List<Bundle> get(int xmlResId, int flags) {
+        final long key = getKey(xmlResId, flags);
+        final List<Bundle> pending = mPending.get(key);
+        if (pending != null) {
+            return copy(pending);
+        }
+
+        final Integer offset = mOffsets.get(key);
+        if (offset == null || mMappedData == null) {
+            return null;
+        }
+        try {
+            final ByteBuffer buffer = mMappedData.duplicate();
+            buffer.position(offset);
+            return readEntry(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Corrupt metadata cache entry for " + xmlResId, e);
+            mOffsets.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Stores {@param metadata} for {@param xmlResId} and {@param flags}, and schedules a write of
+     * the cache file.
+     */
+    public synchronized void put(int xmlResId, int flags, List<Bundle> metadata) {
+        mPending.put(getKey(xmlResId, flags), copy(metadata));
+        if (!mWriteScheduled) {
+            mWriteScheduled = true;
+            ThreadUtils.postOnBackgroundThread(this::write);
+        }
+    }
+
+    /**
+     * Writes every cached entry to disk and maps the new file. Entries are snapshotted under the
+     * instance lock, which is not held while the file is written, so {@link #get} does not wait
+     * for the disk.
+     */
+    @VisibleForTesting
+    void write() {
+        synchronized (mWriteLock) {
+            final Map<Long, List<Bundle>> written;
+            final Map<Long, List<Bundle>> entries = new HashMap<>();
+            synchronized (this) {
+                mWriteScheduled = false;
+                if (mPending.isEmpty()) {
+                    return;
+                }
+                // get() drops corrupt entries from mOffsets, iterate over a copy of the keys.
+                for (Long key : new ArrayList<>(mOffsets.keySet())) {
+                    final List<Bundle> metadata = get((int) (key >>> 32), (int) (long) key);
+                    if (metadata != null) {
+                        entries.put(key, metadata);
+                    }
+                }
+                written = new HashMap<>(mPending);
+                entries.putAll(written);
+            }
+
+            if (!writeFile(entries)) {
+                return;
+            }
+            final MappedFile mappedFile = readFile();
+
+            synchronized (this) {
+                // Entries put again while writing are newer than the file, keep them pending.
+                for (Map.Entry<Long, List<Bundle>> entry : written.entrySet()) {
+                    if (mPending.get(entry.getKey()) == entry.getValue()) {
+                        mPending.remove(entry.getKey());
+                    }
+                }
+                setMappedFile(mappedFile);
+            }
+        }
+    }
+
+    private boolean writeFile(Map<Long, List<Bundle>> entries) {
+        FileOutputStream out = null;
+        try {
+            final ByteArrayOutputStream data = new ByteArrayOutputStream();
+            final DataOutputStream dataOut = new DataOutputStream(data);
+            final List<Long> keys = new ArrayList<>(entries.keySet());
+            final int[] offsets = new int[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                offsets[i] = dataOut.size();
+                writeEntry(dataOut, entries.get(keys.get(i)));
+            }
+            dataOut.flush();
+
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            final DataOutputStream headerOut = new DataOutputStream(header);
+            headerOut.writeInt(MAGIC);
+            headerOut.writeInt(FORMAT_VERSION);
+            writeString(headerOut, mToken);
+            headerOut.writeInt(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                headerOut.writeLong(keys.get(i));
+                headerOut.writeInt(offsets[i]);
+            }
+            headerOut.flush();
+
+            out = mFile.startWrite();
+            header.writeTo(out);
+            data.writeTo(out);
+            mFile.finishWrite(out);
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write metadata cache", e);
+            if (out != null) {
+                mFile.failWrite(out);
+            }
+            return false;
+        }
+    }
+
+    private void setMappedFile(MappedFile mappedFile) {
+        mOffsets.clear();
+        mMappedData = null;
+        if (mappedFile != null) {
+            mOffsets.putAll(mappedFile.offsets);
+            mMappedData = mappedFile.data;
+        }
+    }
+
+    /**
+     * @return the cache file mapped in memory, or {@code null} if it is missing, unreadable or
+     * was written for another build or configuration.
+     */
+    private MappedFile readFile() {
+        final File file = mFile.getBaseFile();
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION
+                    || !mToken.equals(readString(buffer))) {
+                Log.d(TAG, "Ignoring metadata cache written for another build or config");
+                return null;
+            }
+
+            final int count = buffer.getInt();
+            final Map<Long, Integer> offsets = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                offsets.put(buffer.getLong(), buffer.getInt());
+            }
+            return new MappedFile(offsets, buffer.slice());
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w(TAG, "Failed to load metadata cache", e);
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    static String getToken(Context context) {
+        final Configuration config = context.getResources().getConfiguration();
+        final StringBuilder token = new StringBuilder(Build.FINGERPRINT)
+                .append('|').append(getApkToken(context))
+                .append('|').append(config.getLocales().toLanguageTags())
+                .append('|').append(config.mcc)
+                .append('|').append(config.mnc)
+                .append('|').append(config.uiMode)
+                .append('|').append(config.smallestScreenWidthDp)
+                .append('|').append(config.densityDpi);
+        final ApplicationInfo info = context.getApplicationInfo();
+        if (info != null && info.resourceDirs != null) {
+            token.append('|').append(Arrays.toString(info.resourceDirs));
+        }
+        return token.toString();
+    }
+
+    /**
+     * @return a token identifying the installed Settings APK, which changes when Settings is
+     * updated or reinstalled under the same build and its resource ids may have moved. The APK
+     * cannot change while the process is alive, so it is only computed once.
+     */
+    private static synchronized String getApkToken(Context context) {
+        if (sApkToken == null) {
+            final ApplicationInfo info = context.getApplicationInfo();
+            if (info == null || info.sourceDir == null) {
+                return "";
+            }
+            final File apk = new File(info.sourceDir);
+            sApkToken = apk.length() + "|" + apk.lastModified();
+        }
+        return sApkToken;
+    }
+
+    private static long getKey(int xmlResId, int flags) {
+        return ((long) xmlResId << 32) | (flags & 0xffffffffL);
+    }
+
+    private static List<Bundle> copy(List<Bundle> metadata) {
+        final List<Bundle> copy = new ArrayList<>(metadata.size());
+        for (Bundle bundle : metadata) {
+            copy.add(new Bundle(bundle));
+        }
+        return copy;
+    }
+
+    private static void writeEntry(DataOutputStream out, List<Bundle> metadata)
+            throws IOException {
+        out.writeInt(metadata.size());
+        for (Bundle bundle : metadata) {
+            out.writeInt(bundle.size());
+            for (String name : bundle.keySet()) {
+                writeString(out, name);
+                final Object value = bundle.get(name);
+                if (value == null) {
+                    out.writeByte(TYPE_NULL);
+                } else if (value instanceof String) {
+                    out.writeByte(TYPE_STRING);
+                    writeString(out, (String) value);
+                } else if (value instanceof Integer) {
+                    out.writeByte(TYPE_INT);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Boolean) {
+                    out.writeByte(TYPE_BOOLEAN);
+                    out.writeBoolean((Boolean) value);
+                } else {
+                    throw new IOException("Unsupported metadata value for " + name);
+                }
+            }
+        }
+    }
+
+    private static List<Bundle> readEntry(ByteBuffer buffer) {
+        final int bundleCount = buffer.getInt();
+        final List<Bundle> metadata = new ArrayList<>(bundleCount);
+        for (int i = 0; i < bundleCount; i++) {
+            final int fieldCount = buffer.getInt();
+            final Bundle bundle = new Bundle();
+            for (int j = 0; j < fieldCount; j++) {
+                final String name = readString(buffer);
+                final byte type = buffer.get();
+                switch (type) {
+                    case TYPE_NULL:
+                        bundle.putString(name, null);
+                        break;
+                    case TYPE_STRING:
+                        bundle.putString(name, readString(buffer));
+                        break;
+                    case TYPE_INT:
+                        bundle.putInt(name, buffer.getInt());
+                        break;
+                    case TYPE_BOOLEAN:
+                        bundle.putBoolean(name, buffer.get() != 0);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown metadata type " + type);
+                }
+            }
+            metadata.add(bundle);
+        }
+        return metadata;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class MappedFile {
+        final Map<Long, Integer> offsets;
+        final ByteBuffer data;
+
+        MappedFile(Map<Long, Integer> offsets, ByteBuffer data) {
+            this.offsets = offsets;
+            this.data = data;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.FeatureFlagUtils;
 import android.util.Log;
 import android.util.TypedValue;
 import android.util.Xml;
@@ -176,11 +177,31 @@ public class PreferenceXmlParserUtils {
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
+        }
+        if (!FeatureFlagUtils.isEnabled(context, FeatureFlags.PREFERENCE_METADATA_CACHE)) {
+            return parseMetadata(context, xmlResId, flags);
+        }
+
+        final PreferenceXmlMetadataCache cache = PreferenceXmlMetadataCache.getInstance(context);
+        List<Bundle> metadata = cache.get(xmlResId, flags);
+        if (metadata == null) {
+            metadata = parseMetadata(context, xmlResId, flags);
+            cache.put(xmlResId, flags, metadata);
         }
+        return metadata;
+    }
+
+    /**
+     * Same as {@link #extractMetadata(Context, int, int)}, always parsing the xml.
+     */
+    @VisibleForTesting
+    @NonNull
+    static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
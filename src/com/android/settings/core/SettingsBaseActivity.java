@@ -25,8 +25,10 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.content.res.TypedArray;
+import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.text.TextUtils;
 import android.util.ArraySet;
 import android.util.Log;
@@ -46,6 +48,7 @@ import com.google.android.setupcompat.util.WizardManagerHelper;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class SettingsBaseActivity extends FragmentActivity {
 
@@ -57,8 +60,20 @@ public class SettingsBaseActivity extends FragmentActivity {
     // are disabled.
     private static ArraySet<ComponentName> sTileBlacklist = new ArraySet<>();
 
+    /**
+     * Package broadcasts received within this window are handled by a single category reload.
+     */
+    private static final long PACKAGE_UPDATE_DEBOUNCE_MS = 500;
+
     private final PackageReceiver mPackageReceiver = new PackageReceiver();
     private final List<CategoryListener> mCategoryListeners = new ArrayList<>();
+    private final Handler mHandler = new Handler();
+    // Packages changed since the last category reload.
+    private final Set<String> mChangedPackages = new ArraySet<>();
+    private final Runnable mPackageUpdateRunnable = () -> {
+        new CategoriesUpdateTask(new ArraySet<>(mChangedPackages)).execute();
+        mChangedPackages.clear();
+    };
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -117,6 +132,9 @@ public class SettingsBaseActivity extends FragmentActivity {
     @Override
     protected void onPause() {
         unregisterReceiver(mPackageReceiver);
+        // Categories are fully reloaded on resume, drop the pending package updates.
+        mHandler.removeCallbacks(mPackageUpdateRunnable);
+        mChangedPackages.clear();
         super.onPause();
     }
 
@@ -201,31 +219,51 @@ public class SettingsBaseActivity extends FragmentActivity {
         void onCategoriesChanged();
     }
 
-    private class CategoriesUpdateTask extends AsyncTask<Void, Void, Void> {
+    private class CategoriesUpdateTask extends AsyncTask<Void, Void, Boolean> {
 
         private final CategoryManager mCategoryManager;
+        // Packages to reload tiles for, or null to reload every category.
+        private final Set<String> mPackageNames;
 
         public CategoriesUpdateTask() {
+            this(null /* packageNames */);
+        }
+
+        public CategoriesUpdateTask(Set<String> packageNames) {
             mCategoryManager = CategoryManager.get(SettingsBaseActivity.this);
+            mPackageNames = packageNames;
         }
 
         @Override
-        protected Void doInBackground(Void... params) {
-            mCategoryManager.reloadAllCategories(SettingsBaseActivity.this);
-            return null;
+        protected Boolean doInBackground(Void... params) {
+            if (mPackageNames == null) {
+                mCategoryManager.reloadAllCategories(SettingsBaseActivity.this);
+                return true;
+            }
+            return mCategoryManager.reloadCategoriesForPackages(SettingsBaseActivity.this,
+                    mPackageNames);
         }
 
         @Override
-        protected void onPostExecute(Void result) {
+        protected void onPostExecute(Boolean changed) {
             mCategoryManager.updateCategoryFromBlacklist(sTileBlacklist);
-            onCategoriesChanged();
+            if (changed) {
+                onCategoriesChanged();
+            }
         }
     }
 
     private class PackageReceiver extends BroadcastReceiver {
         @Override
         public void onReceive(Context context, Intent intent) {
-            new CategoriesUpdateTask().execute();
+            final Uri data = intent.getData();
+            if (data == null) {
+                new CategoriesUpdateTask().execute();
+                return;
+            }
+            mChangedPackages.add(data.getSchemeSpecificPart());
+            mHandler.removeCallbacks(mPackageUpdateRunnable);
+            mHandler.postDelayed(mPackageUpdateRunnable, PACKAGE_UPDATE_DEBOUNCE_MS);
         }
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.core.instrumentation;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of one operation, bucketed into fixed ranges, along with their count, total and
+ * maximum.
+ *
+ * <p>Not thread safe, owners are expected to synchronize access.
+ */
+public class LatencyHistogram {
+
+    // Upper bounds, in milliseconds, of each bucket. The last bucket is unbounded.
+    private final long[] mBucketUpperBoundsMillis;
+    private final int[] mBuckets;
+    private int mCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+
+    /**
+     * @param bucketUpperBoundsMillis ascending upper bounds, in milliseconds, of each bucket but
+     *                                the last, which is unbounded.
+     */
+    public LatencyHistogram(long[] bucketUpperBoundsMillis) {
+        mBucketUpperBoundsMillis = bucketUpperBoundsMillis;
+        mBuckets = new int[bucketUpperBoundsMillis.length + 1];
+    }
+
+    /**
+     * Records an operation which took {@param latencyNanos}.
+     */
+    public void record(long latencyNanos) {
+        mBuckets[getBucket(mBucketUpperBoundsMillis,
+                TimeUnit.NANOSECONDS.toMillis(latencyNanos))]++;
+        mCount++;
+        mTotalNanos += latencyNanos;
+        mMaxNanos = Math.max(mMaxNanos, latencyNanos);
+    }
+
+    /**
+     * @return the number of operations recorded in {@param bucket}.
+     */
+    public int getCount(int bucket) {
+        return mBuckets[bucket];
+    }
+
+    public JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        final JSONArray buckets = new JSONArray();
+        for (int count : mBuckets) {
+            buckets.put(count);
+        }
+        obj.put("buckets", buckets);
+        obj.put("count", mCount);
+        obj.put("totalMicros", TimeUnit.NANOSECONDS.toMicros(mTotalNanos));
+        obj.put("maxMicros", TimeUnit.NANOSECONDS.toMicros(mMaxNanos));
+        return obj;
+    }
+
+    /**
+     * @return {@param bucketUpperBoundsMillis} as a {@link JSONArray}, for dumps to describe the
+     * buckets once for all the histograms sharing them.
+     */
+    public static JSONArray dumpBucketUpperBounds(long[] bucketUpperBoundsMillis) {
+        final JSONArray bounds = new JSONArray();
+        for (long bound : bucketUpperBoundsMillis) {
+            bounds.put(bound);
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the index of the bucket of {@param latencyMillis} within
+     * {@param bucketUpperBoundsMillis}.
+     */
+    public static int getBucket(long[] bucketUpperBoundsMillis, long latencyMillis) {
+        for (int i = 0; i < bucketUpperBoundsMillis.length; i++) {
+            if (latencyMillis < bucketUpperBoundsMillis[i]) {
+                return i;
+            }
+        }
+        return bucketUpperBoundsMillis.length;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.UserHandle;
+import android.provider.Settings;
+import android.util.ArrayMap;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk copy of the last {@link DashboardCategory} set resolved by {@link CategoryManager}, so
+ * injected tiles can be shown on cold start before PackageManager has been queried.
+ *
+ * <p>The file is only valid for the build, user, locale and provisioning state it was written
+ * with. Reading it makes no PackageManager calls: tiles of packages changed since it was written
+ * are only corrected once {@link CategoryManager} has reloaded the categories in the background.
+ * The content is a {@link Parcel}, which is fine since the build fingerprint is part of the key.
+ *
+ * <p>Reads and writes of the file are serialized, and writes are coalesced so only the latest
+ * categories are written.
+ */
+class CategoryDiskCache {
+
+    private static final String TAG = "CategoryDiskCache";
+
+    @VisibleForTesting
+    static final String CACHE_FILE_NAME = "dashboard_categories.bin";
+    @VisibleForTesting
+    static final int FORMAT_VERSION = 2;
+
+    private final Context mContext;
+    private final AtomicFile mFile;
+    // Held while the file is read or written, AtomicFile does not support concurrent access.
+    private final Object mFileLock = new Object();
+
+    // Categories waiting to be written, guarded by this.
+    private CategoryManager.Snapshot mPendingSnapshot;
+    private boolean mWriteScheduled;
+
+    CategoryDiskCache(Context context) {
+        this(context, new File(context.getApplicationContext().getCacheDir(), CACHE_FILE_NAME));
+    }
+
+    @VisibleForTesting
+    CategoryDiskCache(Context context, File file) {
+        mContext = context.getApplicationContext();
+        mFile = new AtomicFile(file);
+    }
+
+    /**
+     * @return the cached categories, or {@code null} if there are none valid for the current
+     * state of the device.
+     */
+    CategoryManager.Snapshot read() {
+        final byte[] data;
+        try {
+            synchronized (mFileLock) {
+                data = mFile.readFully();
+            }
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read category cache", e);
+            return null;
+        }
+
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            if (parcel.readInt() != FORMAT_VERSION || !getToken().equals(parcel.readString())) {
+                Log.d(TAG, "Ignoring category cache written for another build or config");
+                return null;
+            }
+
+            final List<DashboardCategory> categories =
+                    parcel.createTypedArrayList(DashboardCategory.CREATOR);
+            final List<DashboardCategory> otherCategories =
+                    parcel.createTypedArrayList(DashboardCategory.CREATOR);
+            final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+            for (DashboardCategory category : categories) {
+                categoryByKeyMap.put(category.key, category);
+            }
+            for (DashboardCategory category : otherCategories) {
+                categoryByKeyMap.put(category.key, category);
+            }
+            return new CategoryManager.Snapshot(categories, categoryByKeyMap);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Corrupt category cache", e);
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Replaces the cached categories with {@param snapshot} in the background. A write still
+     * pending is replaced by this one.
+     */
+    void scheduleWrite(CategoryManager.Snapshot snapshot) {
+        synchronized (this) {
+            mPendingSnapshot = snapshot;
+            if (mWriteScheduled) {
+                return;
+            }
+            mWriteScheduled = true;
+        }
+        ThreadUtils.postOnBackgroundThread(this::writePending);
+    }
+
+    private void writePending() {
+        synchronized (mFileLock) {
+            final CategoryManager.Snapshot snapshot;
+            synchronized (this) {
+                snapshot = mPendingSnapshot;
+                mPendingSnapshot = null;
+                mWriteScheduled = false;
+            }
+            if (snapshot != null) {
+                write(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Replaces the cached categories with {@param snapshot}.
+     */
+    @VisibleForTesting
+    void write(CategoryManager.Snapshot snapshot) {
+        // Categories only reachable by key, e.g. created for tiles using legacy category keys.
+        final List<DashboardCategory> otherCategories = new ArrayList<>();
+        for (DashboardCategory category : snapshot.mCategoryByKeyMap.values()) {
+            if (!snapshot.mCategories.contains(category)) {
+                otherCategories.add(category);
+            }
+        }
+
+        final Parcel parcel = Parcel.obtain();
+        FileOutputStream out = null;
+        synchronized (mFileLock) {
+            try {
+                parcel.writeInt(FORMAT_VERSION);
+                parcel.writeString(getToken());
+                parcel.writeTypedList(snapshot.mCategories);
+                parcel.writeTypedList(otherCategories);
+
+                out = mFile.startWrite();
+                out.write(parcel.marshall());
+                mFile.finishWrite(out);
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Failed to write category cache", e);
+                if (out != null) {
+                    mFile.failWrite(out);
+                }
+            } finally {
+                parcel.recycle();
+            }
+        }
+    }
+
+    @VisibleForTesting
+    String getToken() {
+        final boolean provisioned = Settings.Global.getInt(mContext.getContentResolver(),
+                Settings.Global.DEVICE_PROVISIONED, 0) != 0;
+        return Build.FINGERPRINT
+                + '|' + UserHandle.myUserId()
+                + '|' + mContext.getResources().getConfiguration().getLocales().toLanguageTags()
+                + '|' + provisioned;
+    }
+}
@@ -17,25 +17,32 @@ package com.android.settings.dashboard;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.os.Bundle;
 import android.util.ArrayMap;
 import android.util.ArraySet;
+import android.util.FeatureFlagUtils;
 import android.util.Log;
 import android.util.Pair;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.FeatureFlags;
 import com.android.settingslib.applications.InterestingConfigChanges;
 import com.android.settingslib.drawer.CategoryKey;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.drawer.TileUtils;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class CategoryManager {
 
@@ -47,10 +54,16 @@ public class CategoryManager {
     // Tile cache (key: <packageName, activityName>, value: tile)
     private final Map<Pair<String, String>, Tile> mTileByComponentCache;
 
-    // Tile cache (key: category key, value: category)
-    private final Map<String, DashboardCategory> mCategoryByKeyMap;
+    /**
+     * Categories currently published to readers. Readers never lock; writers hold the
+     * CategoryManager lock, build the next snapshot off to the side and swap it in.
+     */
+    private volatile Snapshot mSnapshot;
 
-    private List<DashboardCategory> mCategories;
+    // Persists the last loaded categories across process restarts, null when disabled.
+    private final CategoryDiskCache mDiskCache;
+    // Signature of the categories last written to mDiskCache.
+    private List<String> mDiskCacheSignature;
 
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
@@ -61,64 +74,168 @@ public class CategoryManager {
 
     CategoryManager(Context context) {
         mTileByComponentCache = new ArrayMap<>();
-        mCategoryByKeyMap = new ArrayMap<>();
         mInterestingConfigChanges = new InterestingConfigChanges();
         mInterestingConfigChanges.applyNewConfig(context.getResources());
+        mDiskCache = FeatureFlagUtils.isEnabled(context, FeatureFlags.PERSISTENT_TILE_CACHE)
+                ? new CategoryDiskCache(context) : null;
     }
 
-    public synchronized DashboardCategory getTilesByCategory(Context context, String categoryKey) {
-        tryInitCategories(context);
-
-        return mCategoryByKeyMap.get(categoryKey);
+    public DashboardCategory getTilesByCategory(Context context, String categoryKey) {
+        return tryInitCategories(context).mCategoryByKeyMap.get(categoryKey);
     }
 
-    public synchronized List<DashboardCategory> getCategories(Context context) {
-        tryInitCategories(context);
-        return mCategories;
+    public List<DashboardCategory> getCategories(Context context) {
+        return tryInitCategories(context).mCategories;
     }
 
     public synchronized void reloadAllCategories(Context context) {
         final boolean forceClearCache = mInterestingConfigChanges.applyNewConfig(
                 context.getResources());
-        mCategories = null;
-        tryInitCategories(context, forceClearCache);
+        mSnapshot = loadCategories(context, forceClearCache);
+    }
+
+    /**
+     * Reloads categories after {@param packageNames} were added, removed or changed.
+     *
+     * <p>Tiles owned by these packages are dropped from the tile cache and resolved again, while
+     * tiles of every other package are reused.
+     *
+     * @return whether the resulting categories differ from the ones before the reload.
+     */
+    public synchronized boolean reloadCategoriesForPackages(Context context,
+            Set<String> packageNames) {
+        final Snapshot oldSnapshot = mSnapshot;
+        final List<String> oldSignature =
+                getCategoriesSignature(oldSnapshot == null ? null : oldSnapshot.mCategories);
+        if (mInterestingConfigChanges.applyNewConfig(context.getResources())) {
+            mSnapshot = loadCategories(context, true /* forceClearCache */);
+            return true;
+        }
+        evictTilesForPackages(mTileByComponentCache, packageNames);
+        final Snapshot snapshot = loadCategories(context, false /* forceClearCache */);
+        mSnapshot = snapshot;
+        return !oldSignature.equals(getCategoriesSignature(snapshot.mCategories));
     }
 
     public synchronized void updateCategoryFromBlacklist(Set<ComponentName> tileBlacklist) {
-        if (mCategories == null) {
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot == null) {
             Log.w(TAG, "Category is null, skipping blacklist update");
+            return;
         }
-        for (int i = 0; i < mCategories.size(); i++) {
-            DashboardCategory category = mCategories.get(i);
-            for (int j = 0; j < category.getTilesCount(); j++) {
-                Tile tile = category.getTile(j);
+        // Published categories are never modified, copy the ones losing a tile.
+        final Map<DashboardCategory, DashboardCategory> replacements = new ArrayMap<>();
+        for (DashboardCategory category : snapshot.mCategoryByKeyMap.values()) {
+            DashboardCategory newCategory = null;
+            for (int i = 0; i < category.getTilesCount(); i++) {
+                final Tile tile = category.getTile(i);
                 if (tileBlacklist.contains(tile.getIntent().getComponent())) {
-                    category.removeTile(j--);
+                    if (newCategory == null) {
+                        newCategory = new DashboardCategory(category.key);
+                        for (int j = 0; j < i; j++) {
+                            newCategory.addTile(category.getTile(j));
+                        }
+                    }
+                } else if (newCategory != null) {
+                    newCategory.addTile(tile);
                 }
             }
+            if (newCategory != null) {
+                replacements.put(category, newCategory);
+            }
+        }
+        if (replacements.isEmpty()) {
+            return;
+        }
+
+        final List<DashboardCategory> categories = new ArrayList<>(snapshot.mCategories.size());
+        for (DashboardCategory category : snapshot.mCategories) {
+            final DashboardCategory newCategory = replacements.get(category);
+            categories.add(newCategory != null ? newCategory : category);
         }
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (Entry<String, DashboardCategory> entry : snapshot.mCategoryByKeyMap.entrySet()) {
+            final DashboardCategory newCategory = replacements.get(entry.getValue());
+            categoryByKeyMap.put(entry.getKey(),
+                    newCategory != null ? newCategory : entry.getValue());
+        }
+        mSnapshot = new Snapshot(categories, categoryByKeyMap);
     }
 
-    private synchronized void tryInitCategories(Context context) {
-        // Keep cached tiles by default. The cache is only invalidated when InterestingConfigChange
-        // happens.
-        tryInitCategories(context, false /* forceClearCache */);
+    @VisibleForTesting
+    synchronized void setCategories(List<DashboardCategory> categories) {
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        mSnapshot = new Snapshot(new ArrayList<>(categories), categoryByKeyMap);
     }
 
-    private synchronized void tryInitCategories(Context context, boolean forceClearCache) {
-        if (mCategories == null) {
-            if (forceClearCache) {
-                mTileByComponentCache.clear();
+    private Snapshot tryInitCategories(Context context) {
+        final Snapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Read outside the lock, so readers don't queue up behind the file read.
+        final Snapshot cached = mDiskCache == null ? null : mDiskCache.read();
+        synchronized (this) {
+            if (mSnapshot == null) {
+                if (cached != null) {
+                    // Show the categories from the last run right away, and reconcile them with
+                    // PackageManager in the background.
+                    mSnapshot = cached;
+                    mDiskCacheSignature = getCategoriesSignature(cached.mCategories);
+                    reconcileCachedCategories(context.getApplicationContext(), cached);
+                } else {
+                    // Keep cached tiles by default. The cache is only invalidated when
+                    // InterestingConfigChange happens.
+                    mSnapshot = loadCategories(context, false /* forceClearCache */);
+                }
             }
-            mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
+            return mSnapshot;
+        }
+    }
+
+    /**
+     * Replaces {@param cached} with the live categories, unless another reload already did.
+     * Activities are told about the change by their own reload on resume.
+     */
+    private void reconcileCachedCategories(Context context, Snapshot cached) {
+        ThreadUtils.postOnBackgroundThread(() -> {
+            synchronized (CategoryManager.this) {
+                if (mSnapshot == cached) {
+                    mSnapshot = loadCategories(context, false /* forceClearCache */);
+                }
+            }
+        });
+    }
+
+    /**
+     * Queries every injected tile and builds a new snapshot from them, reusing cached tiles
+     * unless {@param forceClearCache} is set.
+     */
+    private synchronized Snapshot loadCategories(Context context, boolean forceClearCache) {
+        if (forceClearCache) {
+            mTileByComponentCache.clear();
+        }
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        final List<DashboardCategory> categories =
+                TileUtils.getCategories(context, mTileByComponentCache);
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        backwardCompatCleanupForCategory(mTileByComponentCache, categoryByKeyMap);
+        sortCategories(context, categoryByKeyMap);
+        filterDuplicateTiles(categoryByKeyMap);
+        final Snapshot snapshot = new Snapshot(categories, categoryByKeyMap);
+        if (mDiskCache != null) {
+            final List<String> signature = getCategoriesSignature(snapshot.mCategories);
+            if (!signature.equals(mDiskCacheSignature)) {
+                mDiskCacheSignature = signature;
+                mDiskCache.scheduleWrite(snapshot);
             }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
         }
+        return snapshot;
     }
 
     @VisibleForTesting
@@ -172,6 +289,57 @@ public class CategoryManager {
         }
     }
 
+    /**
+     * Removes every tile owned by one of {@param packageNames} from {@param tileByComponentCache}.
+     */
+    @VisibleForTesting
+    static void evictTilesForPackages(Map<Pair<String, String>, Tile> tileByComponentCache,
+            Set<String> packageNames) {
+        final Iterator<Pair<String, String>> iterator = tileByComponentCache.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (packageNames.contains(iterator.next().first)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return a flattened description of {@param categories}, equal for two lists holding the
+     * same tiles in the same order with the same metadata.
+     */
+    @VisibleForTesting
+    static List<String> getCategoriesSignature(List<DashboardCategory> categories) {
+        final List<String> signature = new ArrayList<>();
+        if (categories == null) {
+            return signature;
+        }
+        for (DashboardCategory category : categories) {
+            signature.add(category.key);
+            for (int i = 0; i < category.getTilesCount(); i++) {
+                signature.add(getTileSignature(category.getTile(i)));
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return a flattened description of {@param tile}, equal for two tiles of the same
+     * component with the same order, users and metadata.
+     */
+    static String getTileSignature(Tile tile) {
+        final StringBuilder builder = new StringBuilder()
+                .append(tile.getIntent().getComponent())
+                .append('|').append(tile.getOrder())
+                .append('|').append(tile.userHandle);
+        final Bundle metaData = tile.getMetaData();
+        if (metaData != null) {
+            for (String key : new TreeSet<>(metaData.keySet())) {
+                builder.append('|').append(key).append('=').append(metaData.get(key));
+            }
+        }
+        return builder.toString();
+    }
+
     /**
      * Sort the tiles injected from all apps such that if they have the same priority value,
      * they wil lbe sorted by package name.
@@ -208,4 +376,19 @@ public class CategoryManager {
             }
         }
     }
+
+    /**
+     * Immutable set of categories published to readers.
+     */
+    static class Snapshot {
+        final List<DashboardCategory> mCategories;
+        // key: category key, value: category
+        final Map<String, DashboardCategory> mCategoryByKeyMap;
+
+        Snapshot(List<DashboardCategory> categories,
+                Map<String, DashboardCategory> categoryByKeyMap) {
+            mCategories = Collections.unmodifiableList(categories);
+            mCategoryByKeyMap = Collections.unmodifiableMap(categoryByKeyMap);
+        }
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.dashboard;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.instrumentation.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Records how long each preference controller of a {@link DashboardFragment} takes to be
+ * created, checked for availability, displayed and updated, in a {@link LatencyHistogram} per
+ * fragment, controller and method.
+ *
+ * <p>Only fed by fragments when {@link com.android.settings.core.FeatureFlags#CONTROLLER_LATENCY}
+ * is enabled.
+ */
+public class ControllerLatencyHistogram {
+
+    public static final String METHOD_CONSTRUCTOR = "constructor";
+    public static final String METHOD_IS_AVAILABLE = "isAvailable";
+    public static final String METHOD_DISPLAY_PREFERENCE = "displayPreference";
+    public static final String METHOD_UPDATE_STATE = "updateState";
+
+    /**
+     * Upper bounds, in milliseconds, of each bucket. The last bucket is unbounded.
+     */
+    @VisibleForTesting
+    static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    private static ControllerLatencyHistogram sSingleton;
+
+    // Fragment -> controller -> method -> histogram.
+    private final Map<String, Map<String, Map<String, LatencyHistogram>>> mEntries =
+            new ArrayMap<>();
+
+    public static synchronized ControllerLatencyHistogram getInstance() {
+        if (sSingleton == null) {
+            sSingleton = new ControllerLatencyHistogram();
+        }
+        return sSingleton;
+    }
+
+    /**
+     * Records a call of {@param method} on {@param controller} of {@param fragment}, which took
+     * {@param latencyNanos}.
+     */
+    public synchronized void record(String fragment, String controller, String method,
+            long latencyNanos) {
+        getHistogram(fragment, controller, method).record(latencyNanos);
+    }
+
+    @VisibleForTesting
+    synchronized int getCount(String fragment, String controller, String method, int bucket) {
+        final Map<String, Map<String, LatencyHistogram>> controllers = mEntries.get(fragment);
+        final Map<String, LatencyHistogram> methods =
+                controllers == null ? null : controllers.get(controller);
+        final LatencyHistogram histogram = methods == null ? null : methods.get(method);
+        return histogram == null ? 0 : histogram.getCount(bucket);
+    }
+
+    @VisibleForTesting
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("bucketUpperBoundsMillis",
+                LatencyHistogram.dumpBucketUpperBounds(BUCKET_UPPER_BOUNDS_MILLIS));
+
+        final JSONObject fragments = new JSONObject();
+        for (Map.Entry<String, Map<String, Map<String, LatencyHistogram>>> fragment :
+                mEntries.entrySet()) {
+            final JSONObject controllers = new JSONObject();
+            for (Map.Entry<String, Map<String, LatencyHistogram>> controller :
+                    fragment.getValue().entrySet()) {
+                final JSONObject methods = new JSONObject();
+                for (Map.Entry<String, LatencyHistogram> method :
+                        controller.getValue().entrySet()) {
+                    methods.put(method.getKey(), method.getValue().dump());
+                }
+                controllers.put(controller.getKey(), methods);
+            }
+            fragments.put(fragment.getKey(), controllers);
+        }
+        obj.put("fragments", fragments);
+        return obj;
+    }
+
+    private LatencyHistogram getHistogram(String fragment, String controller, String method) {
+        Map<String, Map<String, LatencyHistogram>> controllers = mEntries.get(fragment);
+        if (controllers == null) {
+            controllers = new ArrayMap<>();
+            mEntries.put(fragment, controllers);
+        }
+        Map<String, LatencyHistogram> methods = controllers.get(controller);
+        if (methods == null) {
+            methods = new ArrayMap<>();
+            controllers.put(controller, methods);
+        }
+        LatencyHistogram histogram = methods.get(method);
+        if (histogram == null) {
+            histogram = new LatencyHistogram(BUCKET_UPPER_BOUNDS_MILLIS);
+            methods.put(method, histogram);
+        }
+        return histogram;
+    }
+}
@@ -15,15 +15,22 @@
  */
 package com.android.settings.dashboard;
 
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_URI;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_SUMMARY_URI;
+
 import android.app.Activity;
 import android.app.settings.SettingsEnums;
+import android.content.ComponentName;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.SystemProperties;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
+import android.util.FeatureFlagUtils;
 import android.util.Log;
+import android.util.Pair;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.VisibleForTesting;
@@ -36,6 +43,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.backup.UserBackupSettingsActivity;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.FeatureFlags;
 import com.android.settings.core.PreferenceControllerListHelper;
 import com.android.settings.core.SettingsBaseActivity;
 import com.android.settings.overlay.FeatureFactory;
@@ -45,12 +53,21 @@ import com.android.settingslib.core.lifecycle.Lifecycle;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
+import com.android.settingslib.utils.ThreadUtils;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -61,33 +78,70 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         BasePreferenceController.UiBlockListener {
     private static final String TAG = "DashboardFragment";
 
+    // Controllers taking longer than this to update their state are logged.
+    private static final long SLOW_CONTROLLER_THRESHOLD_MS = 16;
+    private static final int STATE_COMPUTE_POOL_SIZE = 4;
+    // Name the controllers created from code are recorded under, as they are created together.
+    @VisibleForTesting
+    static final String CONTROLLERS_FROM_CODE = "createPreferenceControllers";
+
+    @VisibleForTesting
+    static Executor sStateComputeExecutor;
+
     private final Map<Class, List<AbstractPreferenceController>> mPreferenceControllers =
             new ArrayMap<>();
-    private final Set<String> mDashboardTilePrefKeys = new ArraySet<>();
+    // Preferences of the dashboard tiles on screen, by key.
+    private final Map<String, Preference> mDashboardTilePrefs = new ArrayMap<>();
+    // Signature of each tile when it was last bound to its preference, by key.
+    private final Map<String, String> mDashboardTileSignatures = new ArrayMap<>();
+    // Tile each preference was last bound to, by key.
+    private final Map<String, Tile> mDashboardTiles = new ArrayMap<>();
 
     private DashboardFeatureProvider mDashboardFeatureProvider;
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private SummaryLoader mSummaryLoader;
+    // Tile components mSummaryLoader was created for.
+    private List<ComponentName> mSummaryLoaderComponents;
     private List<String> mSuppressInjectedTileKeys;
     @VisibleForTesting
     UiBlockerController mBlockerController;
+    // Keys of the ui blockers revealed on screen, and of those showing a placeholder.
+    private final Set<String> mRevealedBlockerKeys = new ArraySet<>();
+    private final Set<String> mPlaceholderBlockerKeys = new ArraySet<>();
+    private final List<BasePreferenceController> mUiBlockers = new ArrayList<>();
     private boolean mIsEnableWifiDisplay = false;
+    // Whether controller latencies are recorded into ControllerLatencyHistogram.
+    private boolean mRecordControllerLatency;
 
     @Override
     public void onAttach(Context context) {
         super.onAttach(context);
+        mRecordControllerLatency = FeatureFlagUtils.isEnabled(context,
+                FeatureFlags.CONTROLLER_LATENCY);
         mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider = FeatureFactory.getFactory(context).
                 getDashboardFeatureProvider(context);
         final List<AbstractPreferenceController> controllers = new ArrayList<>();
         // Load preference controllers from code
+        final long startTime = mRecordControllerLatency ? SystemClock.elapsedRealtimeNanos() : 0;
         final List<AbstractPreferenceController> controllersFromCode =
                 createPreferenceControllers(context);
+        if (mRecordControllerLatency) {
+            recordControllerLatency(CONTROLLERS_FROM_CODE,
+                    ControllerLatencyHistogram.METHOD_CONSTRUCTOR,
+                    SystemClock.elapsedRealtimeNanos() - startTime);
+        }
         // Load preference controllers from xml definition
         final List<BasePreferenceController> controllersFromXml = PreferenceControllerListHelper
-                .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+                .getPreferenceControllersFromXml(context, getPreferenceScreenResId(),
+                        mRecordControllerLatency
+                                ? (controller, durationNanos) -> recordControllerLatency(
+                                        controller.getClass().getSimpleName(),
+                                        ControllerLatencyHistogram.METHOD_CONSTRUCTOR,
+                                        durationNanos)
+                                : null);
         // Filter xml-based controllers in case a similar controller is created from code already.
         final List<BasePreferenceController> uniqueControllerFromXml =
                 PreferenceControllerListHelper.filterControllers(
@@ -122,23 +176,47 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     @VisibleForTesting
     void checkUiBlocker(List<AbstractPreferenceController> controllers) {
         final List<String> keys = new ArrayList<>();
+        mUiBlockers.clear();
         controllers
                 .stream()
                 .filter(controller -> controller instanceof BasePreferenceController.UiBlocker)
                 .forEach(controller -> {
                     ((BasePreferenceController) controller).setUiBlockListener(this);
+                    mUiBlockers.add((BasePreferenceController) controller);
                     keys.add(controller.getPreferenceKey());
                 });
 
         if (!keys.isEmpty()) {
             mBlockerController = new UiBlockerController(keys);
-            mBlockerController.start(()->updatePreferenceVisibility(mPreferenceControllers));
         }
     }
 
+    /**
+     * Starts the ui blockers, once subclasses initialized their controllers in onAttach() and
+     * before any blocker work runs.
+     */
+    @VisibleForTesting
+    void startUiBlockers() {
+        if (mBlockerController == null) {
+            return;
+        }
+        for (BasePreferenceController controller : mUiBlockers) {
+            final BasePreferenceController.UiBlocker blocker =
+                    (BasePreferenceController.UiBlocker) controller;
+            Runnable work = null;
+            if (blocker instanceof BasePreferenceController.BackgroundUiBlocker) {
+                work = ((BasePreferenceController.BackgroundUiBlocker) blocker)::doBlockerWork;
+            }
+            mBlockerController.setBlocker(controller.getPreferenceKey(),
+                    blocker.getBlockerDeadlineMillis(), blocker.getBlockerDependencies(), work);
+        }
+        mBlockerController.start(()->updatePreferenceVisibility(mPreferenceControllers));
+    }
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
+        startUiBlockers();
         // Set ComparisonCallback so we get better animation when list changes.
         getPreferenceManager().setPreferenceComparisonCallback(
                 new PreferenceManager.SimplePreferenceComparisonCallback());
@@ -236,6 +314,14 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         }
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (mBlockerController != null) {
+            mBlockerController.destroy();
+        }
+    }
+
     @Override
     protected abstract int getPreferenceScreenResId();
 
@@ -325,20 +411,42 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         addPreferencesFromResource(resId);
         final PreferenceScreen screen = getPreferenceScreen();
         screen.setOnExpandButtonClickListener(this);
-        mPreferenceControllers.values().stream().flatMap(Collection::stream).forEach(
-                controller -> controller.displayPreference(screen));
+        for (List<AbstractPreferenceController> controllerList : mPreferenceControllers.values()) {
+            for (AbstractPreferenceController controller : controllerList) {
+                displayPreference(controller, screen);
+            }
+        }
+    }
+
+    private void displayPreference(AbstractPreferenceController controller,
+            PreferenceScreen screen) {
+        if (!mRecordControllerLatency) {
+            controller.displayPreference(screen);
+            return;
+        }
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        controller.displayPreference(screen);
+        recordControllerLatency(controller.getClass().getSimpleName(),
+                ControllerLatencyHistogram.METHOD_DISPLAY_PREFERENCE,
+                SystemClock.elapsedRealtimeNanos() - startTime);
     }
 
     /**
      * Update state of each preference managed by PreferenceController.
+     *
+     * <p>Preferences are updated in screen order, so the ones visible first are updated first.
+     * Controllers implementing {@link BasePreferenceController.BackgroundStateComputer} compute
+     * their state concurrently on a worker pool, and are applied on the main thread once
+     * computed, without the main thread waiting for them.
      */
     protected void updatePreferenceStates() {
         final PreferenceScreen screen = getPreferenceScreen();
+        final List<Pair<AbstractPreferenceController, Preference>> updates = new ArrayList<>();
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
         for (List<AbstractPreferenceController> controllerList : controllerLists) {
             for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
+                if (!isAvailable(controller)) {
                     continue;
                 }
 
@@ -355,8 +463,162 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
-                controller.updateState(preference);
+                updates.add(Pair.create(controller, preference));
+            }
+        }
+        // Stable sort, controllers of the same preference keep their order. Preferences missing
+        // from the hierarchy go last.
+        final Map<Preference, Integer> positions = new ArrayMap<>();
+        collectScreenPositions(screen, positions);
+        updates.sort((u1, u2) -> Integer.compare(
+                positions.getOrDefault(u1.second, Integer.MAX_VALUE),
+                positions.getOrDefault(u2.second, Integer.MAX_VALUE)));
+
+        // Start every background computation first, then update the other controllers while
+        // they run.
+        final List<BackgroundUpdate> backgroundUpdates = new ArrayList<>();
+        for (Pair<AbstractPreferenceController, Preference> update : updates) {
+            if (update.first instanceof BasePreferenceController.BackgroundStateComputer) {
+                final BackgroundUpdate backgroundUpdate =
+                        new BackgroundUpdate(update.first, update.second);
+                backgroundUpdates.add(backgroundUpdate);
+                getStateComputeExecutor().execute(backgroundUpdate);
+            }
+        }
+        for (Pair<AbstractPreferenceController, Preference> update : updates) {
+            if (!(update.first instanceof BasePreferenceController.BackgroundStateComputer)) {
+                updateState(update.first, update.second);
+            }
+        }
+        for (BackgroundUpdate backgroundUpdate : backgroundUpdates) {
+            backgroundUpdate.applyOrDefer();
+        }
+    }
+
+    /**
+     * Records the position of every preference under {@param group} in the order they are
+     * shown, which is depth first, each group's children being kept sorted by order.
+     */
+    private static void collectScreenPositions(PreferenceGroup group,
+            Map<Preference, Integer> positions) {
+        final int count = group.getPreferenceCount();
+        for (int i = 0; i < count; i++) {
+            final Preference preference = group.getPreference(i);
+            positions.put(preference, positions.size());
+            if (preference instanceof PreferenceGroup) {
+                collectScreenPositions((PreferenceGroup) preference, positions);
+            }
+        }
+    }
+
+    private boolean isAvailable(AbstractPreferenceController controller) {
+        if (!mRecordControllerLatency) {
+            return controller.isAvailable();
+        }
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        final boolean available = controller.isAvailable();
+        recordControllerLatency(controller.getClass().getSimpleName(),
+                ControllerLatencyHistogram.METHOD_IS_AVAILABLE,
+                SystemClock.elapsedRealtimeNanos() - startTime);
+        return available;
+    }
+
+    private void updateState(AbstractPreferenceController controller, Preference preference) {
+        final long startTime = SystemClock.elapsedRealtimeNanos();
+        controller.updateState(preference);
+        final long durationNanos = SystemClock.elapsedRealtimeNanos() - startTime;
+        logControllerTime(controller, ControllerLatencyHistogram.METHOD_UPDATE_STATE,
+                durationNanos);
+        if (mRecordControllerLatency) {
+            recordControllerLatency(controller.getClass().getSimpleName(),
+                    ControllerLatencyHistogram.METHOD_UPDATE_STATE, durationNanos);
+        }
+    }
+
+    private void recordControllerLatency(String controllerName, String method,
+            long durationNanos) {
+        ControllerLatencyHistogram.getInstance().record(getClass().getSimpleName(),
+                controllerName, method, durationNanos);
+    }
+
+    private static void logControllerTime(AbstractPreferenceController controller, String method,
+            long durationNanos) {
+        final long totalTime = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        if (totalTime > SLOW_CONTROLLER_THRESHOLD_MS) {
+            Log.w(TAG, controller.getClass().getSimpleName() + "#" + method + " took "
+                    + totalTime + "ms");
+        }
+    }
+
+    private static synchronized Executor getStateComputeExecutor() {
+        if (sStateComputeExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    STATE_COMPUTE_POOL_SIZE, STATE_COMPUTE_POOL_SIZE, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sStateComputeExecutor = executor;
+        }
+        return sStateComputeExecutor;
+    }
+
+    /**
+     * Computes the state of a {@link BasePreferenceController.BackgroundStateComputer} on a
+     * worker thread, and applies it on the main thread.
+     */
+    private class BackgroundUpdate extends FutureTask<Void> {
+        private static final int STATE_COMPUTING = 0;
+        private static final int STATE_COMPUTED = 1;
+        private static final int STATE_DEFERRED = 2;
+
+        private final AbstractPreferenceController mController;
+        private final Preference mPreference;
+        private final AtomicInteger mState = new AtomicInteger(STATE_COMPUTING);
+
+        BackgroundUpdate(AbstractPreferenceController controller, Preference preference) {
+            super(() -> {
+                final long startTime = SystemClock.elapsedRealtimeNanos();
+                ((BasePreferenceController.BackgroundStateComputer) controller).computeState();
+                logControllerTime(controller, "computeState",
+                        SystemClock.elapsedRealtimeNanos() - startTime);
+                return null;
+            });
+            mController = controller;
+            mPreference = preference;
+        }
+
+        /**
+         * Applies the computed state now if it is ready, or as soon as it is otherwise.
+         */
+        void applyOrDefer() {
+            if (mState.compareAndSet(STATE_COMPUTING, STATE_DEFERRED)) {
+                return;
             }
+            apply();
+        }
+
+        @Override
+        protected void done() {
+            if (!mState.compareAndSet(STATE_COMPUTING, STATE_COMPUTED)) {
+                ThreadUtils.postOnMainThread(() -> {
+                    // The preference may have been replaced while the state was computed.
+                    final PreferenceScreen screen = getPreferenceScreen();
+                    if (isAdded() && screen != null
+                            && screen.findPreference(mController.getPreferenceKey())
+                            == mPreference) {
+                        apply();
+                    }
+                });
+            }
+        }
+
+        private void apply() {
+            try {
+                get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.w(TAG, "Failed to compute state of "
+                        + mController.getClass().getSimpleName(), e);
+            }
+            updateState(mController, mPreference);
         }
     }
 
@@ -371,6 +633,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             // Intentionally do not cache PreferenceScreen because it will be recreated later.
             screen.removeAll();
         }
+        mDashboardTilePrefs.clear();
+        mDashboardTileSignatures.clear();
+        mDashboardTiles.clear();
+        mRevealedBlockerKeys.clear();
+        mPlaceholderBlockerKeys.clear();
 
         // Add resource based tiles.
         displayResourceTiles();
@@ -399,14 +666,38 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 preferenceControllers.values()) {
             for (AbstractPreferenceController controller : controllerList) {
                 final String key = controller.getPreferenceKey();
-                final Preference preference = findPreference(key);
+                final Preference preference = screen.findPreference(key);
                 if (preference != null) {
-                    preference.setVisible(visible && controller.isAvailable());
+                    final boolean shown = visible && controller.isAvailable();
+                    preference.setVisible(shown);
+                    if (shown && controller instanceof BasePreferenceController.UiBlocker) {
+                        updateBlockerPreference(controller, preference);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Shows a placeholder for a ui blocker not revealed yet once the page is shown. Once
+     * revealed, updates the state of the blockers which showed a placeholder or whose work just
+     * finished in the background.
+     */
+    private void updateBlockerPreference(AbstractPreferenceController controller,
+            Preference preference) {
+        final String key = controller.getPreferenceKey();
+        if (!mBlockerController.isRevealed(key)) {
+            if (mPlaceholderBlockerKeys.add(key)) {
+                ((BasePreferenceController.UiBlocker) controller).showPlaceholder(preference);
+            }
+        } else if (mRevealedBlockerKeys.add(key)) {
+            if (mPlaceholderBlockerKeys.remove(key)
+                    || controller instanceof BasePreferenceController.BackgroundUiBlocker) {
+                updateState(controller, preference);
+            }
+        }
+    }
+
     /**
      * Refresh preference items backed by DashboardCategory.
      */
@@ -425,16 +716,24 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
             Log.d(TAG, "tile list is empty, skipping category " + category.key);
             return;
         }
-        // Create a list to track which tiles are to be removed.
-        final List<String> remove = new ArrayList<>(mDashboardTilePrefKeys);
-
-        // There are dashboard tiles, so we need to install SummaryLoader.
-        if (mSummaryLoader != null) {
-            mSummaryLoader.release();
+        // Create a set to track which tiles are to be removed.
+        final Set<String> remove = new ArraySet<>(mDashboardTilePrefs.keySet());
+
+        // There are dashboard tiles, so we need to install SummaryLoader. Summary providers are
+        // created per tile, so the loader can only be reused for the same set of tiles.
+        final List<ComponentName> components = getTileComponents(tiles);
+        if (mSummaryLoader == null || !components.equals(mSummaryLoaderComponents)) {
+            if (mSummaryLoader != null) {
+                mSummaryLoader.release();
+            }
+            mSummaryLoader = new SummaryLoader(getActivity(), getCategoryKey());
+            mSummaryLoader.setSummaryConsumer(this);
+            mSummaryLoaderComponents = components;
+        } else {
+            mSummaryLoader.updateSummaryToCache(category);
+            // The category changed, so summaries may be stale even though the tiles are not.
+            mSummaryLoader.refreshSummaries();
         }
-        final Context context = getContext();
-        mSummaryLoader = new SummaryLoader(getActivity(), getCategoryKey());
-        mSummaryLoader.setSummaryConsumer(this);
         // Install dashboard tiles.
         final boolean forceRoundedIcons = shouldForceRoundedIcon();
         int size = tiles.size();
@@ -461,12 +760,19 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                     continue;
                 }
             }
-            if (mDashboardTilePrefKeys.contains(key)) {
-                // Have the key already, will rebind.
-                final Preference preference = screen.findPreference(key);
-                mDashboardFeatureProvider.bindPreferenceToTile(getActivity(), forceRoundedIcons,
-                        getMetricsCategory(), preference, tile, key,
-                        mPlaceholderPreferenceController.getOrder());
+            final String signature = CategoryManager.getTileSignature(tile);
+            final Preference preference = mDashboardTilePrefs.get(key);
+            if (preference != null) {
+                // Have the key already, rebind if the tile changed or loads content at bind.
+                // CategoryManager resolves the tiles of an updated package again, so a new tile
+                // object also means its title or icon resources may have changed.
+                final String boundSignature = mDashboardTileSignatures.get(key);
+                if (tile != mDashboardTiles.get(key) || !signature.equals(boundSignature)
+                        || hasDynamicContent(tile)) {
+                    mDashboardFeatureProvider.bindPreferenceToTile(getActivity(),
+                            forceRoundedIcons, getMetricsCategory(), preference, tile, key,
+                            mPlaceholderPreferenceController.getOrder());
+                }
             } else {
                 // Don't have this key, add it.
                 final Preference pref = new Preference(getPrefContext());
@@ -474,16 +780,17 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                         getMetricsCategory(), pref, tile, key,
                         mPlaceholderPreferenceController.getOrder());
                 screen.addPreference(pref);
-                mDashboardTilePrefKeys.add(key);
+                mDashboardTilePrefs.put(key, pref);
             }
+            mDashboardTileSignatures.put(key, signature);
+            mDashboardTiles.put(key, tile);
             remove.remove(key);
         }
         // Finally remove tiles that are gone.
-        int removeSize = remove.size();
-        for (int i = 0; i < removeSize; i++) {
-            String key = remove.get(i);
-            mDashboardTilePrefKeys.remove(key);
-            final Preference preference = screen.findPreference(key);
+        for (String key : remove) {
+            mDashboardTileSignatures.remove(key);
+            mDashboardTiles.remove(key);
+            final Preference preference = mDashboardTilePrefs.remove(key);
             if (preference != null) {
                 screen.removePreference(preference);
             }
@@ -491,6 +798,24 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         mSummaryLoader.setListening(true);
     }
 
+    private static List<ComponentName> getTileComponents(List<Tile> tiles) {
+        final List<ComponentName> components = new ArrayList<>(tiles.size());
+        for (Tile tile : tiles) {
+            components.add(tile.getIntent().getComponent());
+        }
+        return components;
+    }
+
+    /**
+     * @return whether binding {@param tile} loads its summary or icon from a content provider,
+     * which can change without the tile itself changing.
+     */
+    private static boolean hasDynamicContent(Tile tile) {
+        final Bundle metaData = tile.getMetaData();
+        return metaData != null && (metaData.containsKey(META_DATA_PREFERENCE_SUMMARY_URI)
+                || metaData.containsKey(META_DATA_PREFERENCE_ICON_URI));
+    }
+
     @Override
     public void onBlockerWorkFinished(BasePreferenceController controller) {
         mBlockerController.countDown(controller.getPreferenceKey());
@@ -22,11 +22,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Looper;
-import android.os.Message;
-import android.os.Process;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 import android.util.ArraySet;
@@ -42,6 +37,7 @@ import com.android.settingslib.utils.ThreadUtils;
 
 import java.lang.reflect.Field;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SummaryLoader {
     private static final boolean DEBUG = false;
@@ -55,26 +51,33 @@ public class SummaryLoader {
     private final DashboardFeatureProvider mDashboardFeatureProvider;
     private final String mCategoryKey;
 
-    private final Worker mWorker;
-    private final HandlerThread mWorkerThread;
+    private final SummaryProviderExecutor.Queue mQueue;
+    // Whether a task applying mListening to the summary providers is queued but not started yet.
+    private final AtomicBoolean mApplyPending = new AtomicBoolean();
+    // Summaries set since the last delivery to the main thread, by tile component.
+    private final ArrayMap<ComponentName, CharSequence> mPendingSummaries = new ArrayMap<>();
 
     private SummaryConsumer mSummaryConsumer;
-    private boolean mListening;
+    // Latest listening state requested on the main thread, applied by the worker.
+    private volatile boolean mListening;
     private boolean mWorkerListening;
     private ArraySet<BroadcastReceiver> mReceivers = new ArraySet<>();
 
     public SummaryLoader(Activity activity, String categoryKey) {
+        this(activity, categoryKey, SummaryProviderExecutor.getInstance());
+    }
+
+    @VisibleForTesting
+    SummaryLoader(Activity activity, String categoryKey, SummaryProviderExecutor executor) {
         mDashboardFeatureProvider = FeatureFactory.getFactory(activity)
                 .getDashboardFeatureProvider(activity);
         mCategoryKey = categoryKey;
-        mWorkerThread = new HandlerThread("SummaryLoader", Process.THREAD_PRIORITY_BACKGROUND);
-        mWorkerThread.start();
-        mWorker = new Worker(mWorkerThread.getLooper());
+        mQueue = executor.newQueue();
         mActivity = activity;
     }
 
     public void release() {
-        mWorkerThread.quitSafely();
+        mQueue.cancel();
         // Make sure we aren't listening.
         setListeningW(false);
     }
@@ -83,25 +86,50 @@ public class SummaryLoader {
         mSummaryConsumer = summaryConsumer;
     }
 
+    /**
+     * Sets the summary of the tile of {@param provider}. Summaries set in quick succession are
+     * delivered to the main thread together.
+     */
     public void setSummary(SummaryProvider provider, final CharSequence summary) {
         final ComponentName component = mSummaryProviderMap.get(provider);
-        ThreadUtils.postOnMainThread(() -> {
-
-            final Tile tile = getTileFromCategory(
-                    mDashboardFeatureProvider.getTilesForCategory(mCategoryKey), component);
+        if (component == null) {
+            Log.w(TAG, "Summary set by unknown provider " + provider);
+            return;
+        }
+        synchronized (mPendingSummaries) {
+            final boolean deliveryScheduled = !mPendingSummaries.isEmpty();
+            mPendingSummaries.put(component, summary);
+            if (deliveryScheduled) {
+                return;
+            }
+        }
+        ThreadUtils.postOnMainThread(this::deliverPendingSummaries);
+    }
 
+    private void deliverPendingSummaries() {
+        final ArrayMap<ComponentName, CharSequence> summaries;
+        synchronized (mPendingSummaries) {
+            summaries = new ArrayMap<>(mPendingSummaries);
+            mPendingSummaries.clear();
+        }
+        final DashboardCategory category =
+                mDashboardFeatureProvider.getTilesForCategory(mCategoryKey);
+        for (int i = 0; i < summaries.size(); i++) {
+            final ComponentName component = summaries.keyAt(i);
+            final CharSequence summary = summaries.valueAt(i);
+            final Tile tile = getTileFromCategory(category, component);
             if (tile == null) {
                 if (DEBUG) {
                     Log.d(TAG, "Can't find tile for " + component);
                 }
-                return;
+                continue;
             }
             if (DEBUG) {
                 Log.d(TAG, "setSummary " + tile.getDescription() + " - " + summary);
             }
 
             updateSummaryIfNeeded(mActivity.getApplicationContext(), tile, summary);
-        });
+        }
     }
 
     @VisibleForTesting
@@ -139,22 +167,30 @@ public class SummaryLoader {
         }
         mReceivers.clear();
 
-        mWorker.removeMessages(Worker.MSG_SET_LISTENING);
-        if (!listening) {
-            // Stop listen
-            mWorker.obtainMessage(Worker.MSG_SET_LISTENING, 0 /* listening */).sendToTarget();
-        } else {
-            // Start listen
-            if (mSummaryProviderMap.isEmpty()) {
-                // Category not initialized yet, init before starting to listen
-                if (!mWorker.hasMessages(Worker.MSG_GET_CATEGORY_TILES_AND_SET_LISTENING)) {
-                    mWorker.sendEmptyMessage(Worker.MSG_GET_CATEGORY_TILES_AND_SET_LISTENING);
-                }
-            } else {
-                // Category already initialized, start listening immediately
-                mWorker.obtainMessage(Worker.MSG_SET_LISTENING, 1 /* listening */).sendToTarget();
-            }
+        if (listening) {
+            // The page is shown again, its summaries come first.
+            mQueue.raisePriority();
+        }
+        // A task already queued applies the latest state when it runs.
+        if (mApplyPending.compareAndSet(false, true)) {
+            mQueue.execute(this::applyListeningW);
+        }
+    }
+
+    /**
+     * Restarts every summary provider, so each recomputes its summary, if listening. Only call
+     * from the main thread.
+     */
+    public void refreshSummaries() {
+        if (!mListening) {
+            return;
+        }
+        // Providers register their receivers again when restarted.
+        for (int i = 0; i < mReceivers.size(); i++) {
+            mActivity.unregisterReceiver(mReceivers.valueAt(i));
         }
+        mReceivers.clear();
+        mQueue.execute(this::restartListeningW);
     }
 
     private SummaryProvider getSummaryProvider(Tile tile) {
@@ -239,6 +275,39 @@ public class SummaryLoader {
         }
     }
 
+    private void applyListeningW() {
+        mApplyPending.set(false);
+        final boolean listening = mListening;
+        if (listening && mSummaryProviderMap.isEmpty()) {
+            // Category not initialized yet, init before starting to listen
+            makeProvidersW();
+            if (mSummaryProviderMap.isEmpty()) {
+                return;
+            }
+        }
+        setListeningW(listening);
+    }
+
+    private synchronized void restartListeningW() {
+        if (!mWorkerListening || !mListening) {
+            return;
+        }
+        setListeningW(false);
+        setListeningW(true);
+    }
+
+    private void makeProvidersW() {
+        final DashboardCategory category =
+                mDashboardFeatureProvider.getTilesForCategory(mCategoryKey);
+        if (category == null || category.getTilesCount() == 0) {
+            return;
+        }
+        final List<Tile> tiles = category.getTiles();
+        for (Tile tile : tiles) {
+            makeProviderW(tile);
+        }
+    }
+
     private synchronized void makeProviderW(Tile tile) {
         SummaryProvider provider = getSummaryProvider(tile);
         if (provider != null) {
@@ -274,40 +343,4 @@ public class SummaryLoader {
     public interface SummaryProviderFactory {
         SummaryProvider createSummaryProvider(Activity activity, SummaryLoader summaryLoader);
     }
-
-    private class Worker extends Handler {
-        private static final int MSG_GET_CATEGORY_TILES_AND_SET_LISTENING = 1;
-        private static final int MSG_GET_PROVIDER = 2;
-        private static final int MSG_SET_LISTENING = 3;
-
-        public Worker(Looper looper) {
-            super(looper);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            switch (msg.what) {
-                case MSG_GET_CATEGORY_TILES_AND_SET_LISTENING:
-                    final DashboardCategory category =
-                            mDashboardFeatureProvider.getTilesForCategory(mCategoryKey);
-                    if (category == null || category.getTilesCount() == 0) {
-                        return;
-                    }
-                    final List<Tile> tiles = category.getTiles();
-                    for (Tile tile : tiles) {
-                        makeProviderW(tile);
-                    }
-                    setListeningW(true);
-                    break;
-                case MSG_GET_PROVIDER:
-                    Tile tile = (Tile) msg.obj;
-                    makeProviderW(tile);
-                    break;
-                case MSG_SET_LISTENING:
-                    boolean listening = msg.obj != null && msg.obj.equals(1);
-                    setListeningW(listening);
-                    break;
-            }
-        }
-    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide pool running the work of every {@link SummaryLoader}, replacing one
+ * {@link android.os.HandlerThread} per loader.
+ *
+ * <p>Each loader gets its own {@link Queue}, which runs its tasks one at a time and in order, as
+ * the loader's handler thread used to. Queues created or raised later take precedence over older
+ * ones, so the page the user most recently opened or returned to gets its summaries first.
+ */
+public class SummaryProviderExecutor {
+
+    private static final String TAG = "SummaryProviderExecutor";
+
+    private static final int POOL_SIZE = 2;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static SummaryProviderExecutor sInstance;
+
+    private final Executor mExecutor;
+    private final AtomicInteger mNextPriority = new AtomicInteger();
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    public static synchronized SummaryProviderExecutor getInstance() {
+        if (sInstance == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                    new SummaryThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+            sInstance = new SummaryProviderExecutor(executor);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    SummaryProviderExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * @return a new queue, taking precedence over every queue created before.
+     */
+    public Queue newQueue() {
+        return new Queue(mNextPriority.getAndIncrement());
+    }
+
+    /**
+     * Serial queue of tasks for a single {@link SummaryLoader}.
+     */
+    public class Queue {
+        private int mPriority;
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+        private boolean mRunning;
+        private boolean mCancelled;
+
+        private Queue(int priority) {
+            mPriority = priority;
+        }
+
+        /**
+         * Runs {@param task} after every task queued before it, unless the queue is cancelled.
+         */
+        public synchronized void execute(Runnable task) {
+            if (mCancelled) {
+                return;
+            }
+            mTasks.add(task);
+            if (!mRunning) {
+                scheduleNext();
+            }
+        }
+
+        /**
+         * Makes the tasks of this queue take precedence over those of every other queue.
+         */
+        public synchronized void raisePriority() {
+            mPriority = mNextPriority.getAndIncrement();
+        }
+
+        /**
+         * Drops every task not started yet, and ignores tasks queued later.
+         */
+        public synchronized void cancel() {
+            mCancelled = true;
+            mTasks.clear();
+        }
+
+        private synchronized void scheduleNext() {
+            final Runnable task = mTasks.poll();
+            mRunning = task != null;
+            if (task == null) {
+                return;
+            }
+            mExecutor.execute(new PrioritizedTask(mPriority, mNextSequence.getAndIncrement(),
+                    () -> {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            Log.w(TAG, "Summary task failed", e);
+                        } finally {
+                            scheduleNext();
+                        }
+                    }));
+        }
+    }
+
+    /**
+     * Task ordered by descending priority, then by submission order.
+     */
+    @VisibleForTesting
+    static class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+        private final int mPriority;
+        private final long mSequence;
+        private final Runnable mTask;
+
+        PrioritizedTask(int priority, long sequence, Runnable task) {
+            mPriority = priority;
+            mSequence = sequence;
+            mTask = task;
+        }
+
+        @Override
+        public void run() {
+            mTask.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            if (mPriority != other.mPriority) {
+                return Integer.compare(other.mPriority, mPriority);
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+    private static class SummaryThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "SummaryLoader-" + mCount.incrementAndGet());
+        }
+    }
+}
@@ -16,86 +16,302 @@
 
 package com.android.settings.dashboard;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.core.BasePreferenceController;
 import com.android.settingslib.utils.ThreadUtils;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Control ui blocker data and check whether it is finished
  *
+ * <p>Each blocker has a deadline, and may depend on other blockers. The page is shown once
+ * every blocker either finished or passed its deadline, so a slow blocker only delays the page
+ * up to its own deadline. A blocker is revealed once it and all its dependencies finished;
+ * blockers not revealed when the page is shown get a placeholder until they are.
+ *
+ * <p>Blockers with work of their own run it on a pool shared by every page, once their
+ * dependencies finished.
+ *
  * @see BasePreferenceController.UiBlocker
  * @see BasePreferenceController.UiBlockListener
  */
 public class UiBlockerController {
     private static final String TAG = "UiBlockerController";
-    private static final int TIMEOUT_MILLIS = 500;
+    public static final long DEFAULT_DEADLINE_MILLIS = 300;
+    private static final int WORKER_POOL_SIZE = 2;
+
+    private static Executor sWorkerExecutor;
 
-    private CountDownLatch mCountDownLatch;
+    private final Map<String, Blocker> mBlockers = new ArrayMap<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Executor mExecutor;
+    private Runnable mRevealRunnable;
+    private boolean mStarted;
     private boolean mBlockerFinished;
-    private Set<String> mKeys;
-    private long mTimeoutMillis;
 
     public UiBlockerController(@NonNull List<String> keys) {
-        this(keys, TIMEOUT_MILLIS);
+        this(keys, DEFAULT_DEADLINE_MILLIS);
     }
 
     public UiBlockerController(@NonNull List<String> keys, long timeout) {
-        mCountDownLatch = new CountDownLatch(keys.size());
+        this(keys, timeout, null);
+    }
+
+    @VisibleForTesting
+    UiBlockerController(@NonNull List<String> keys, long timeout, Executor executor) {
+        for (String key : keys) {
+            mBlockers.put(key, new Blocker(key, timeout));
+        }
         mBlockerFinished = keys.isEmpty();
-        mKeys = new HashSet<>(keys);
-        mTimeoutMillis = timeout;
+        mExecutor = executor;
     }
 
     /**
-     * Start background thread, it will invoke {@code finishRunnable} if any condition is met
+     * Sets the deadline, dependencies and background work of the blocker {@code key}. Only
+     * effective before {@link #start(Runnable)}.
      *
-     * 1. Waiting time exceeds {@link #mTimeoutMillis}
-     * 2. All background work that associated with {@link #mCountDownLatch} is finished
+     * @param work run on the worker pool once every dependency finished, after which the
+     *             blocker is finished. If null, the blocker is finished by
+     *             {@link #countDown(String)}.
      */
-    public boolean start(Runnable finishRunnable) {
-        if (mKeys.isEmpty()) {
-            // Don't need to run finishRunnable because it doesn't start
-            return false;
+    public synchronized void setBlocker(String key, long deadlineMillis,
+            @NonNull Collection<String> dependencies, Runnable work) {
+        final Blocker blocker = mBlockers.get(key);
+        if (blocker == null || mStarted) {
+            return;
         }
-        ThreadUtils.postOnBackgroundThread(() -> {
-            try {
-                mCountDownLatch.await(mTimeoutMillis, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                Log.w(TAG, "interrupted");
+        blocker.mDeadlineMillis = deadlineMillis;
+        blocker.mDependencies.clear();
+        for (String dependency : dependencies) {
+            // Dependencies on preferences which aren't blockers of this page are satisfied.
+            if (mBlockers.containsKey(dependency) && !dependency.equals(key)) {
+                blocker.mDependencies.add(dependency);
             }
-            mBlockerFinished = true;
-            ThreadUtils.postOnMainThread(finishRunnable);
-        });
+        }
+        blocker.mWork = work;
+    }
 
+    /**
+     * Start tracking the blockers, it will invoke {@code revealRunnable} on the main thread
+     * whenever what is revealed changes:
+     *
+     * 1. Every blocker finished or passed its deadline, and the page can be shown
+     * 2. After that, a blocker and all its dependencies finished
+     */
+    public synchronized boolean start(Runnable revealRunnable) {
+        if (mBlockers.isEmpty()) {
+            // Don't need to run revealRunnable because it doesn't start
+            return false;
+        }
+        mStarted = true;
+        mRevealRunnable = revealRunnable;
+        breakDependencyCycles();
+        for (Blocker blocker : mBlockers.values()) {
+            if (!blocker.mFinished) {
+                mHandler.postDelayed(blocker, blocker.mDeadlineMillis);
+            }
+        }
+        startReadyWork();
+        updateBlockerFinished();
         return true;
     }
 
     /**
-     * Return {@code true} if all work finished
+     * Stops tracking the blockers, {@code revealRunnable} won't be invoked anymore. Work already
+     * handed to the worker pool still runs, but no further work is started.
      */
-    public boolean isBlockerFinished() {
+    public synchronized void destroy() {
+        for (Blocker blocker : mBlockers.values()) {
+            mHandler.removeCallbacks(blocker);
+            blocker.mWorkStarted = true;
+        }
+        mRevealRunnable = null;
+    }
+
+    /**
+     * Return {@code true} if every blocker finished or passed its deadline, and the page can be
+     * shown.
+     */
+    public synchronized boolean isBlockerFinished() {
         return mBlockerFinished;
     }
 
+    /**
+     * Return {@code true} if the blocker {@code key} and all its dependencies finished, or if
+     * {@code key} isn't a blocker.
+     */
+    public synchronized boolean isRevealed(String key) {
+        final Blocker blocker = mBlockers.get(key);
+        if (blocker == null) {
+            return true;
+        }
+        if (!blocker.mFinished) {
+            return false;
+        }
+        for (String dependency : blocker.mDependencies) {
+            if (!isRevealed(dependency)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Count down latch by {@code key}. It only count down 1 time if same key count down multiple
      * times.
      */
-    public boolean countDown(String key) {
-        if (mKeys.remove(key)) {
-            mCountDownLatch.countDown();
-            return true;
+    public synchronized boolean countDown(String key) {
+        final Blocker blocker = mBlockers.get(key);
+        if (blocker == null || blocker.mFinished) {
+            return false;
         }
+        blocker.mFinished = true;
+        mHandler.removeCallbacks(blocker);
+        if (mStarted) {
+            startReadyWork();
+            if (mBlockerFinished) {
+                // The page is already shown, this blocker may now replace its placeholder.
+                notifyRevealChanged();
+            } else {
+                updateBlockerFinished();
+            }
+        }
+        return true;
+    }
 
-        return false;
+    private synchronized void onDeadline(Blocker blocker) {
+        if (blocker.mFinished || blocker.mTimedOut) {
+            return;
+        }
+        Log.w(TAG, blocker.mKey + " missed its deadline of " + blocker.mDeadlineMillis + "ms");
+        blocker.mTimedOut = true;
+        updateBlockerFinished();
+    }
+
+    private void updateBlockerFinished() {
+        if (mBlockerFinished) {
+            return;
+        }
+        for (Blocker blocker : mBlockers.values()) {
+            if (!blocker.mFinished && !blocker.mTimedOut) {
+                return;
+            }
+        }
+        mBlockerFinished = true;
+        notifyRevealChanged();
+    }
+
+    private void notifyRevealChanged() {
+        if (mRevealRunnable != null) {
+            ThreadUtils.postOnMainThread(mRevealRunnable);
+        }
+    }
+
+    private void startReadyWork() {
+        for (Blocker blocker : mBlockers.values()) {
+            if (blocker.mWork == null || blocker.mWorkStarted
+                    || !areDependenciesFinished(blocker)) {
+                continue;
+            }
+            blocker.mWorkStarted = true;
+            final String key = blocker.mKey;
+            final Runnable work = blocker.mWork;
+            final Executor executor = mExecutor != null ? mExecutor : getWorkerExecutor();
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Blocker work failed for " + key, e);
+                }
+                countDown(key);
+            });
+        }
+    }
+
+    private boolean areDependenciesFinished(Blocker blocker) {
+        for (String dependency : blocker.mDependencies) {
+            if (!mBlockers.get(dependency).mFinished) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the dependencies closing a cycle, which could otherwise never be revealed.
+     */
+    private void breakDependencyCycles() {
+        final Set<String> visited = new ArraySet<>();
+        for (String key : mBlockers.keySet()) {
+            breakDependencyCycles(key, new ArraySet<>(), visited);
+        }
+    }
+
+    private void breakDependencyCycles(String key, Set<String> path, Set<String> visited) {
+        if (!visited.add(key)) {
+            return;
+        }
+        path.add(key);
+        final Blocker blocker = mBlockers.get(key);
+        for (String dependency : new ArrayList<>(blocker.mDependencies)) {
+            if (path.contains(dependency)) {
+                Log.w(TAG, "Ignoring cyclic dependency of " + key + " on " + dependency);
+                blocker.mDependencies.remove(dependency);
+            } else {
+                breakDependencyCycles(dependency, path, visited);
+            }
+        }
+        path.remove(key);
+    }
+
+    private static synchronized Executor getWorkerExecutor() {
+        if (sWorkerExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    WORKER_POOL_SIZE, WORKER_POOL_SIZE, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sWorkerExecutor = executor;
+        }
+        return sWorkerExecutor;
+    }
+
+    /**
+     * A blocker, run on the main looper when its deadline passes.
+     */
+    private class Blocker implements Runnable {
+        final String mKey;
+        final Set<String> mDependencies = new ArraySet<>();
+        long mDeadlineMillis;
+        Runnable mWork;
+        boolean mWorkStarted;
+        boolean mFinished;
+        boolean mTimedOut;
+
+        Blocker(String key, long deadlineMillis) {
+            mKey = key;
+            mDeadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public void run() {
+            onDeadline(this);
+        }
     }
 }
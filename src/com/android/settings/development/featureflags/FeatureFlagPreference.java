@@ -21,6 +21,8 @@ import android.util.FeatureFlagUtils;
 
 import androidx.preference.SwitchPreference;
 
+import com.android.settings.search.SettingsSearchIndexablesProvider;
+
 public class FeatureFlagPreference extends SwitchPreference {
 
     private final String mKey;
@@ -49,6 +51,7 @@ public class FeatureFlagPreference extends SwitchPreference {
         } else {
             FeatureFlagUtils.setEnabled(getContext(), mKey, isChecked);
         }
+        SettingsSearchIndexablesProvider.notifyNonIndexableKeysChanged(getContext());
     }
 
     private void setCheckedInternal(boolean isChecked) {
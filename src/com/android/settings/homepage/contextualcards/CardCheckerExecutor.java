@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool running the checks deciding which cards the homepage shows, shared by
+ * {@link ContextualCardLoader} and
+ * {@link com.android.settings.homepage.contextualcards.conditional.ConditionManager}.
+ *
+ * <p>The pool has room for every card and condition checked at once, so checks don't queue
+ * behind each other and only miss the deadline when they are slow themselves. Idle threads
+ * time out, so the pool costs nothing while the homepage isn't loading.
+ */
+public class CardCheckerExecutor {
+
+    // Above the number of cards and conditions checked at once, only guards against runaway
+    // candidates.
+    private static final int POOL_SIZE = 16;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private static ExecutorService sExecutor;
+
+    /**
+     * Runs {@param checkers} on the shared pool, like {@link ExecutorService#invokeAll(Collection,
+     * long, TimeUnit)}: checkers not done within {@param timeout} are cancelled.
+     */
+    public static <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> checkers,
+            long timeout, TimeUnit unit) throws InterruptedException {
+        return getExecutor().invokeAll(checkers, timeout, unit);
+    }
+
+    @VisibleForTesting
+    static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sExecutor = executor;
+        }
+        return sExecutor;
+    }
+}
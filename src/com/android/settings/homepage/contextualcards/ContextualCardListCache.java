@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Process-wide copy of the ranked cards stored by {@link CardContentProvider}, so that coming
+ * back to the homepage doesn't read the card database again.
+ *
+ * <p>Every write to the card database notifies {@link CardContentProvider#REFRESH_CARD_URI} or
+ * {@link CardContentProvider#DELETE_CARD_URI}, which drops the cached cards.
+ */
+class ContextualCardListCache {
+
+    private static ContextualCardListCache sInstance;
+
+    private final ContentObserver mObserver = new ContentObserver(null /* handler */) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            invalidate();
+        }
+    };
+
+    private List<ContextualCard> mCards;
+    // Incremented on every invalidation, so cards read before one are not cached after it.
+    private int mGeneration;
+
+    static synchronized ContextualCardListCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ContextualCardListCache(context);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ContextualCardListCache(Context context) {
+        final Context appContext = context.getApplicationContext();
+        appContext.getContentResolver().registerContentObserver(
+                CardContentProvider.REFRESH_CARD_URI, false /* notifyForDescendants */,
+                mObserver);
+        appContext.getContentResolver().registerContentObserver(
+                CardContentProvider.DELETE_CARD_URI, false /* notifyForDescendants */,
+                mObserver);
+    }
+
+    /**
+     * @return the cached cards in ranking order, or {@code null} if they need to be read again.
+     */
+    synchronized List<ContextualCard> getCards() {
+        return mCards;
+    }
+
+    /**
+     * @return a token to pass to {@link #putCards(int, List)} for cards read from now on.
+     */
+    synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches {@param cards}, unless the cache was invalidated since {@param generation} was
+     * obtained, in which case they may be stale.
+     */
+    synchronized void putCards(int generation, List<ContextualCard> cards) {
+        if (generation == mGeneration) {
+            mCards = Collections.unmodifiableList(new ArrayList<>(cards));
+        }
+    }
+
+    synchronized void invalidate() {
+        mGeneration++;
+        mCards = null;
+    }
+}
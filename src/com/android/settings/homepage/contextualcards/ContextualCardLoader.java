@@ -41,11 +41,8 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -54,15 +51,17 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     static final int CARD_CONTENT_LOADER_ID = 1;
 
     private static final String TAG = "ContextualCardLoader";
-    private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 250;
+    // How long all cards together may take to be checked for eligibility.
+    private static final long ELIGIBILITY_CHECKER_DEADLINE_MS = 400;
 
-    private final ExecutorService mExecutorService;
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
         @Override
         public void onChange(boolean selfChange, Uri uri) {
             if (isStarted()) {
                 mNotifyUri = uri;
+                // Drop cached cards before reloading, whichever observer is notified first.
+                ContextualCardListCache.getInstance(mContext).invalidate();
                 forceLoad();
             }
         }
@@ -76,7 +75,6 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     ContextualCardLoader(Context context) {
         super(context);
         mContext = context.getApplicationContext();
-        mExecutorService = Executors.newCachedThreadPool();
     }
 
     @Override
@@ -108,6 +106,13 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             Log.d(TAG, "Skipping - in legacy suggestion mode");
             return result;
         }
+        final ContextualCardListCache cache = getCardListCache();
+        final List<ContextualCard> cachedCards = cache.getCards();
+        if (cachedCards != null) {
+            result.addAll(cachedCards);
+            return getDisplayableCards(result);
+        }
+        final int generation = cache.getGeneration();
         try (Cursor cursor = getContextualCardsFromProvider()) {
             if (cursor.getCount() > 0) {
                 for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
@@ -122,9 +127,15 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
                 }
             }
         }
+        cache.putCards(generation, result);
         return getDisplayableCards(result);
     }
 
+    @VisibleForTesting
+    ContextualCardListCache getCardListCache() {
+        return ContextualCardListCache.getInstance(mContext);
+    }
+
     // Get final displayed cards and log what cards will be displayed/hidden
     @VisibleForTesting
     List<ContextualCard> getDisplayableCards(List<ContextualCard> candidates) {
@@ -160,22 +171,43 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
     @VisibleForTesting
     List<ContextualCard> filterEligibleCards(List<ContextualCard> candidates) {
         final List<ContextualCard> cards = new ArrayList<>();
-        final List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
+        final List<EligibleCardChecker> checkers = new ArrayList<>();
 
         for (ContextualCard card : candidates) {
-            final EligibleCardChecker future = new EligibleCardChecker(mContext, card);
-            eligibleCards.add(mExecutorService.submit(future));
+            checkers.add(new EligibleCardChecker(mContext, card));
+        }
+        // Checkers not done by the deadline are cancelled.
+        final List<Future<ContextualCard>> eligibleCards;
+        try {
+            eligibleCards = CardCheckerExecutor.invokeAll(checkers,
+                    ELIGIBILITY_CHECKER_DEADLINE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted checking eligible cards. Skipping all", e);
+            return cards;
         }
         // Collect future and eligible cards
-        for (Future<ContextualCard> cardFuture : eligibleCards) {
+        final MetricsFeatureProvider metricsFeatureProvider =
+                FeatureFactory.getFactory(mContext).getMetricsFeatureProvider();
+        for (int i = 0; i < eligibleCards.size(); i++) {
+            final Future<ContextualCard> cardFuture = eligibleCards.get(i);
+            if (cardFuture.isCancelled()) {
+                final ContextualCard candidate = candidates.get(i);
+                Log.w(TAG, "Timed out getting eligible state for " + candidate.getName()
+                        + ". Skipping");
+                metricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
+                        SettingsEnums.ACTION_CONTEXTUAL_CARD_ELIGIBILITY_TIMEOUT,
+                        SettingsEnums.SETTINGS_HOMEPAGE,
+                        candidate.getTextSliceUri() /* key */,
+                        (int) ELIGIBILITY_CHECKER_DEADLINE_MS /* value */);
+                continue;
+            }
             try {
-                final ContextualCard card = cardFuture.get(ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                        TimeUnit.MILLISECONDS);
+                final ContextualCard card = cardFuture.get();
                 if (card != null) {
                     cards.add(card);
                 }
-            } catch (ExecutionException | InterruptedException | TimeoutException e) {
-                Log.w(TAG, "Failed to get eligible state for card, likely timeout. Skipping", e);
+            } catch (ExecutionException | InterruptedException e) {
+                Log.w(TAG, "Failed to get eligible state for card. Skipping", e);
             }
         }
         return cards;
@@ -22,6 +22,9 @@ import android.app.settings.SettingsEnums;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
+import android.os.SystemClock;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -34,6 +37,7 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -42,6 +46,13 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
 
     private static final String TAG = "EligibleCardChecker";
     private static final long LATCH_TIMEOUT_MS = 200;
+    // How long the outcome of binding a card slice is reused.
+    @VisibleForTesting
+    static final long SLICE_STATE_TTL_MS = DateUtils.MINUTE_IN_MILLIS;
+
+    // Outcome of binding each card slice, by slice uri, so coming back to the homepage shortly
+    // after doesn't bind every slice again.
+    private static final Map<Uri, SliceState> sSliceStates = new ArrayMap<>();
 
     private final Context mContext;
 
@@ -97,19 +108,55 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
             return false;
         }
 
-        final Slice slice = bindSlice(uri);
+        SliceState state = getCachedSliceState(uri);
+        if (state == null) {
+            final Slice slice = bindSlice(uri);
+            state = new SliceState(slice != null && !slice.hasHint(HINT_ERROR),
+                    isSliceToggleable(slice));
+            // A slice not bound in time may bind next time, don't remember it.
+            if (slice != null) {
+                putCachedSliceState(uri, state);
+            }
+        }
 
-        if (isSliceToggleable(slice)) {
+        if (state.mToggleable) {
             mCard = card.mutate().setHasInlineAction(true).build();
         }
 
-        if (slice == null || slice.hasHint(HINT_ERROR)) {
+        if (!state.mBound) {
             Log.w(TAG, "Failed to bind slice, not eligible for display " + uri);
             return false;
         }
         return true;
     }
 
+    @VisibleForTesting
+    static void clearSliceStateCache() {
+        synchronized (sSliceStates) {
+            sSliceStates.clear();
+        }
+    }
+
+    private static SliceState getCachedSliceState(Uri uri) {
+        synchronized (sSliceStates) {
+            final SliceState state = sSliceStates.get(uri);
+            if (state == null) {
+                return null;
+            }
+            if (SystemClock.elapsedRealtime() - state.mTimestamp > SLICE_STATE_TTL_MS) {
+                sSliceStates.remove(uri);
+                return null;
+            }
+            return state;
+        }
+    }
+
+    private static void putCachedSliceState(Uri uri, SliceState state) {
+        synchronized (sSliceStates) {
+            sSliceStates.put(uri, state);
+        }
+    }
+
     @VisibleForTesting
     Slice bindSlice(Uri uri) {
         final SliceViewManager manager = SliceViewManager.getInstance(mContext);
@@ -151,4 +198,15 @@ public class EligibleCardChecker implements Callable<ContextualCard> {
 
         return !toggles.isEmpty();
     }
+
+    private static class SliceState {
+        final boolean mBound;
+        final boolean mToggleable;
+        final long mTimestamp = SystemClock.elapsedRealtime();
+
+        SliceState(boolean bound, boolean toggleable) {
+            mBound = bound;
+            mToggleable = toggleable;
+        }
+    }
 }
@@ -23,17 +23,15 @@ import android.os.SystemProperties;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.homepage.contextualcards.CardCheckerExecutor;
 import com.android.settings.homepage.contextualcards.ContextualCard;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 public class ConditionManager {
     private static final String TAG = "ConditionManager";
@@ -41,9 +39,9 @@ public class ConditionManager {
     @VisibleForTesting
     final List<ConditionalCardController> mCardControllers;
 
-    private static final long DISPLAYABLE_CHECKER_TIMEOUT_MS = 20;
+    // How long all conditions together may take to be checked.
+    private static final long DISPLAYABLE_CHECKER_DEADLINE_MS = 100;
 
-    private final ExecutorService mExecutorService;
     private final Context mAppContext;
     private final ConditionListener mListener;
 
@@ -53,7 +51,6 @@ public class ConditionManager {
 
     public ConditionManager(Context context, ConditionListener listener) {
         mAppContext = context.getApplicationContext();
-        mExecutorService = Executors.newCachedThreadPool();
         mCardControllers = new ArrayList<>();
         mListener = listener;
         initCandidates();
@@ -64,22 +61,32 @@ public class ConditionManager {
      */
     public List<ContextualCard> getDisplayableCards() {
         final List<ContextualCard> cards = new ArrayList<>();
-        final List<Future<ContextualCard>> displayableCards = new ArrayList<>();
-        // Check displayable future
+        final List<DisplayableChecker> checkers = new ArrayList<>();
         for (ConditionalCardController card : mCardControllers) {
-            final DisplayableChecker future = new DisplayableChecker(getController(card.getId()));
-            displayableCards.add(mExecutorService.submit(future));
+            checkers.add(new DisplayableChecker(getController(card.getId())));
+        }
+        // Check displayable future, checkers not done by the deadline are cancelled.
+        final List<Future<ContextualCard>> displayableCards;
+        try {
+            displayableCards = CardCheckerExecutor.invokeAll(checkers,
+                    DISPLAYABLE_CHECKER_DEADLINE_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted checking displayable cards. Skipping all", e);
+            return cards;
         }
         // Collect future and add displayable cards
         for (Future<ContextualCard> cardFuture : displayableCards) {
+            if (cardFuture.isCancelled()) {
+                Log.w(TAG, "Timed out getting displayable state for card. Skipping");
+                continue;
+            }
             try {
-                final ContextualCard card = cardFuture.get(
-                        DISPLAYABLE_CHECKER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                final ContextualCard card = cardFuture.get();
                 if (card != null) {
                     cards.add(card);
                 }
-            } catch (InterruptedException | ExecutionException | TimeoutException e) {
-                Log.w(TAG, "Failed to get displayable state for card, likely timeout. Skipping", e);
+            } catch (InterruptedException | ExecutionException e) {
+                Log.w(TAG, "Failed to get displayable state for card. Skipping", e);
             }
         }
         return cards;
@@ -29,12 +29,16 @@ import com.android.settings.wifi.WifiMasterSwitchPreferenceController;
 import java.util.ArrayList;
 import java.util.List;
 
-public class TopLevelNetworkEntryPreferenceController extends BasePreferenceController {
+public class TopLevelNetworkEntryPreferenceController extends BasePreferenceController
+        implements BasePreferenceController.BackgroundStateComputer {
 
     private final WifiMasterSwitchPreferenceController mWifiPreferenceController;
     private final MobileNetworkPreferenceController mMobileNetworkPreferenceController;
     private final TetherPreferenceController mTetherPreferenceController;
 
+    // Summary computed by computeState(), as the availability checks need binder calls.
+    private volatile CharSequence mSummary;
+
     public TopLevelNetworkEntryPreferenceController(Context context, String preferenceKey) {
         super(context, preferenceKey);
         mMobileNetworkPreferenceController = new MobileNetworkPreferenceController(mContext);
@@ -49,8 +53,18 @@ public class TopLevelNetworkEntryPreferenceController extends BasePreferenceCont
         return Utils.isDemoUser(mContext) ? UNSUPPORTED_ON_DEVICE : AVAILABLE_UNSEARCHABLE;
     }
 
+    @Override
+    public void computeState() {
+        mSummary = computeSummary();
+    }
+
     @Override
     public CharSequence getSummary() {
+        final CharSequence summary = mSummary;
+        return summary != null ? summary : computeSummary();
+    }
+
+    private CharSequence computeSummary() {
         final String wifiSummary = BidiFormatter.getInstance()
                 .unicodeWrap(mContext.getString(R.string.wifi_settings_title));
         final String mobileSummary = mContext.getString(
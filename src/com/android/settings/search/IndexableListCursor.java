@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.database.AbstractCursor;
+import android.database.CursorIndexOutOfBoundsException;
+
+import java.util.List;
+
+/**
+ * Read-only {@link android.database.Cursor} reading its values straight from a list of rows,
+ * instead of copying every row into a {@link android.database.MatrixCursor}.
+ *
+ * <p>The row count has to be known up front to cross the binder boundary, so the rows are
+ * collected before the cursor is returned; only the per-row column arrays are avoided.
+ *
+ * @param <T> type of a row.
+ */
+abstract class IndexableListCursor<T> extends AbstractCursor {
+
+    private final String[] mColumns;
+    private final List<T> mRows;
+
+    IndexableListCursor(String[] columns, List<T> rows) {
+        mColumns = columns;
+        mRows = rows;
+    }
+
+    /**
+     * @return the value of {@param column} in {@param row}.
+     */
+    abstract Object getValue(T row, int column);
+
+    @Override
+    public int getCount() {
+        return mRows.size();
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumns;
+    }
+
+    @Override
+    public String getString(int column) {
+        final Object value = get(column);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public short getShort(int column) {
+        final Object value = get(column);
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).shortValue()
+                : Short.parseShort(value.toString());
+    }
+
+    @Override
+    public int getInt(int column) {
+        final Object value = get(column);
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).intValue()
+                : Integer.parseInt(value.toString());
+    }
+
+    @Override
+    public long getLong(int column) {
+        final Object value = get(column);
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).longValue()
+                : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public float getFloat(int column) {
+        final Object value = get(column);
+        if (value == null) {
+            return 0.0f;
+        }
+        return value instanceof Number ? ((Number) value).floatValue()
+                : Float.parseFloat(value.toString());
+    }
+
+    @Override
+    public double getDouble(int column) {
+        final Object value = get(column);
+        if (value == null) {
+            return 0.0d;
+        }
+        return value instanceof Number ? ((Number) value).doubleValue()
+                : Double.parseDouble(value.toString());
+    }
+
+    @Override
+    public int getType(int column) {
+        final Object value = get(column);
+        if (value == null) {
+            return FIELD_TYPE_NULL;
+        } else if (value instanceof Float || value instanceof Double) {
+            return FIELD_TYPE_FLOAT;
+        } else if (value instanceof Number) {
+            return FIELD_TYPE_INTEGER;
+        }
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return get(column) == null;
+    }
+
+    private Object get(int column) {
+        if (column < 0 || column >= mColumns.length) {
+            throw new CursorIndexOutOfBoundsException("Requested column: " + column
+                    + ", # of columns: " + mColumns.length);
+        }
+        if (mPos < 0) {
+            throw new CursorIndexOutOfBoundsException("Before first row.");
+        }
+        if (mPos >= mRows.size()) {
+            throw new CursorIndexOutOfBoundsException("After last row.");
+        }
+        return getValue(mRows.get(mPos), column);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.ArraySet;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Persists the last set of non-indexable keys handed out by
+ * {@link SettingsSearchIndexablesProvider}, so that later queries can return only the keys that
+ * were added or removed since.
+ */
+class NonIndexableKeysDeltaTracker {
+
+    @VisibleForTesting
+    static final String SHARED_PREFS_TAG = "non_indexable_keys";
+    private static final String PREF_LAST_EMITTED_KEYS = "last_emitted_keys";
+
+    /**
+     * Keys added to and removed from the non-indexable set.
+     */
+    static class Delta {
+        final Set<String> mAdded;
+        final Set<String> mRemoved;
+
+        Delta(Set<String> added, Set<String> removed) {
+            mAdded = added;
+            mRemoved = removed;
+        }
+
+        boolean isEmpty() {
+            return mAdded.isEmpty() && mRemoved.isEmpty();
+        }
+    }
+
+    private final Context mContext;
+
+    NonIndexableKeysDeltaTracker(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Records {@param keys} as the set last handed out. Nothing is written when the set is the
+     * one already recorded.
+     */
+    synchronized void recordEmitted(Collection<String> keys) {
+        final Set<String> keySet = new ArraySet<>(keys);
+        if (keySet.equals(getPrefs().getStringSet(PREF_LAST_EMITTED_KEYS, null))) {
+            return;
+        }
+        getPrefs().edit()
+                .putStringSet(PREF_LAST_EMITTED_KEYS, keySet)
+                .apply();
+    }
+
+    /**
+     * @return the difference between the set last handed out and {@param keys}, without
+     * recording {@param keys}.
+     */
+    synchronized Delta peekDelta(Collection<String> keys) {
+        final Set<String> lastEmitted = getPrefs().getStringSet(PREF_LAST_EMITTED_KEYS, null);
+        final Set<String> added = new ArraySet<>(keys);
+        final Set<String> removed = new ArraySet<>();
+        if (lastEmitted != null) {
+            added.removeAll(lastEmitted);
+            removed.addAll(lastEmitted);
+            removed.removeAll(keys);
+        }
+        return new Delta(added, removed);
+    }
+
+    /**
+     * @return the difference between the set last handed out and {@param keys}, and records
+     * {@param keys} as the set last handed out.
+     */
+    synchronized Delta emitDelta(Collection<String> keys) {
+        final Delta delta = peekDelta(keys);
+        recordEmitted(keys);
+        return delta;
+    }
+
+    private SharedPreferences getPrefs() {
+        return mContext.getSharedPreferences(SHARED_PREFS_TAG, Context.MODE_PRIVATE);
+    }
+}
@@ -45,30 +45,50 @@ import static android.provider.SearchIndexablesContract.SLICE_URI_PAIRS_COLUMNS;
 
 import static com.android.settings.dashboard.DashboardFragmentRegistry.CATEGORY_KEY_TO_PARENT_MAP;
 
+import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
 import android.provider.SearchIndexablesContract;
 import android.provider.SearchIndexablesProvider;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
 import android.util.ArraySet;
+import android.util.FeatureFlagUtils;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.slice.SliceViewManager;
 
+import com.android.internal.telephony.IccCardConstants;
+import com.android.internal.telephony.TelephonyIntents;
 import com.android.settings.SettingsActivity;
+import com.android.settings.core.FeatureFlags;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SettingsSliceProvider;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
@@ -83,6 +103,32 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     private static final String TAG = "SettingsSearchProvider";
 
+    private static final String SEARCH_INDEXABLES_AUTHORITY = "com.android.settings";
+
+    /**
+     * Providers taking longer than this to return their data are logged.
+     */
+    private static final long SLOW_PROVIDER_THRESHOLD_MS = 50;
+
+    /**
+     * How long to wait for the non-indexable keys of all providers before falling back to the
+     * keys each outstanding provider returned last time.
+     */
+    @VisibleForTesting
+    static final long PROVIDER_TIMEOUT_MS = 500;
+
+    private static final int MAX_NON_INDEXABLE_KEYS_PARALLELISM = 4;
+    private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Non-indexable keys last returned by each provider, keyed by provider class name.
+     */
+    @VisibleForTesting
+    static final Map<String, List<String>> sLastKnownNonIndexableKeys =
+            new ConcurrentHashMap<>();
+
+    private static ExecutorService sNonIndexableKeysExecutor;
+
     private static final Collection<String> INVALID_KEYS;
 
     static {
@@ -91,54 +137,174 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         INVALID_KEYS.add("");
     }
 
+    /**
+     * Path of the query returning the non-indexable keys added or removed since the last query of
+     * non-indexable keys, with {@link #NON_INDEXABLES_KEYS_DELTA_COLUMNS}. A change is notified
+     * on {@link #NON_INDEXABLES_KEYS_DELTA_URI} when the delta may no longer be empty.
+     */
+    public static final String NON_INDEXABLES_KEYS_DELTA_PATH = "non_indexables_key_delta";
+
+    public static final Uri NON_INDEXABLES_KEYS_DELTA_URI = new Uri.Builder()
+            .scheme(ContentResolver.SCHEME_CONTENT)
+            .authority(SEARCH_INDEXABLES_AUTHORITY)
+            .appendPath(NON_INDEXABLES_KEYS_DELTA_PATH)
+            .build();
+
+    public static final String COLUMN_DELTA_KEY = "key";
+    /**
+     * {@link #DELTA_ADDED} or {@link #DELTA_REMOVED}.
+     */
+    public static final String COLUMN_DELTA_CHANGE = "change";
+    public static final String[] NON_INDEXABLES_KEYS_DELTA_COLUMNS = {
+            COLUMN_DELTA_KEY,
+            COLUMN_DELTA_CHANGE
+    };
+
+    public static final int DELTA_ADDED = 1;
+    public static final int DELTA_REMOVED = 0;
+
+    private NonIndexableKeysDeltaTracker mDeltaTracker;
+    private final AtomicBoolean mDeltaCheckPending = new AtomicBoolean();
+
+    /**
+     * Availability-affecting state changes after which the non-indexable keys are re-evaluated.
+     */
+    private final BroadcastReceiver mAvailabilityReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // The SIM state is sticky and delivered on registration, nothing has changed yet.
+            if (isInitialStickyBroadcast()) {
+                return;
+            }
+            if (TelephonyIntents.ACTION_SIM_STATE_CHANGED.equals(intent.getAction())) {
+                final String simState = intent.getStringExtra(
+                        IccCardConstants.INTENT_KEY_ICC_STATE);
+                if (!IccCardConstants.INTENT_VALUE_ICC_ABSENT.equals(simState)
+                        && !IccCardConstants.INTENT_VALUE_ICC_LOADED.equals(simState)) {
+                    return;
+                }
+            }
+            checkNonIndexableKeysDelta();
+        }
+    };
+
     @Override
     public boolean onCreate() {
+        mDeltaTracker = new NonIndexableKeysDeltaTracker(getContext());
+        final IntentFilter filter = new IntentFilter(TelephonyIntents.ACTION_SIM_STATE_CHANGED);
+        filter.addAction(Intent.ACTION_USER_ADDED);
+        filter.addAction(Intent.ACTION_USER_REMOVED);
+        getContext().registerReceiver(mAvailabilityReceiver, filter);
         return true;
     }
 
+    /**
+     * Notifies observers of {@link #NON_INDEXABLES_KEYS_DELTA_URI} that the non-indexable keys
+     * may have changed, e.g. after a feature flag was toggled.
+     */
+    public static void notifyNonIndexableKeysChanged(Context context) {
+        context.getContentResolver().notifyChange(NON_INDEXABLES_KEYS_DELTA_URI, null);
+    }
+
     @Override
-    public Cursor queryXmlResources(String[] projection) {
-        MatrixCursor cursor = new MatrixCursor(INDEXABLES_XML_RES_COLUMNS);
-        final List<SearchIndexableResource> resources =
-                getSearchIndexableResourcesFromProvider(getContext());
-        for (SearchIndexableResource val : resources) {
-            Object[] ref = new Object[INDEXABLES_XML_RES_COLUMNS.length];
-            ref[COLUMN_INDEX_XML_RES_RANK] = val.rank;
-            ref[COLUMN_INDEX_XML_RES_RESID] = val.xmlResId;
-            ref[COLUMN_INDEX_XML_RES_CLASS_NAME] = val.className;
-            ref[COLUMN_INDEX_XML_RES_ICON_RESID] = val.iconResId;
-            ref[COLUMN_INDEX_XML_RES_INTENT_ACTION] = val.intentAction;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
-            ref[COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS] = null; // intent target class
-            cursor.addRow(ref);
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+            String sortOrder) {
+        final List<String> pathSegments = uri.getPathSegments();
+        if (pathSegments.size() == 1
+                && NON_INDEXABLES_KEYS_DELTA_PATH.equals(pathSegments.get(0))) {
+            return queryNonIndexableKeysDelta(projection);
         }
+        return super.query(uri, projection, selection, selectionArgs, sortOrder);
+    }
 
+    /**
+     * Gets the non-indexable keys added or removed since the non-indexable keys were last
+     * queried, and records the current keys as the last queried ones.
+     */
+    public Cursor queryNonIndexableKeysDelta(String[] projection) {
+        final MatrixCursor cursor = new MatrixCursor(NON_INDEXABLES_KEYS_DELTA_COLUMNS);
+        final NonIndexableKeysDeltaTracker.Delta delta =
+                mDeltaTracker.emitDelta(getNonIndexableKeysFromProvider(getContext()));
+        for (String key : delta.mAdded) {
+            cursor.newRow()
+                    .add(COLUMN_DELTA_KEY, key)
+                    .add(COLUMN_DELTA_CHANGE, DELTA_ADDED);
+        }
+        for (String key : delta.mRemoved) {
+            cursor.newRow()
+                    .add(COLUMN_DELTA_KEY, key)
+                    .add(COLUMN_DELTA_CHANGE, DELTA_REMOVED);
+        }
         return cursor;
     }
 
+    @Override
+    public Cursor queryXmlResources(String[] projection) {
+        final List<SearchIndexableResource> resources =
+                getSearchIndexableResourcesFromProvider(getContext());
+        return new IndexableListCursor<SearchIndexableResource>(INDEXABLES_XML_RES_COLUMNS,
+                resources) {
+            @Override
+            Object getValue(SearchIndexableResource val, int column) {
+                switch (column) {
+                    case COLUMN_INDEX_XML_RES_RANK:
+                        return val.rank;
+                    case COLUMN_INDEX_XML_RES_RESID:
+                        return val.xmlResId;
+                    case COLUMN_INDEX_XML_RES_CLASS_NAME:
+                        return val.className;
+                    case COLUMN_INDEX_XML_RES_ICON_RESID:
+                        return val.iconResId;
+                    case COLUMN_INDEX_XML_RES_INTENT_ACTION:
+                        return val.intentAction;
+                    case COLUMN_INDEX_XML_RES_INTENT_TARGET_PACKAGE:
+                        return val.intentTargetPackage;
+                    default:
+                        // COLUMN_INDEX_XML_RES_INTENT_TARGET_CLASS is never set.
+                        return null;
+                }
+            }
+        };
+    }
+
     @Override
     public Cursor queryRawData(String[] projection) {
-        MatrixCursor cursor = new MatrixCursor(INDEXABLES_RAW_COLUMNS);
         final List<SearchIndexableRaw> raws = getSearchIndexableRawFromProvider(getContext());
-        for (SearchIndexableRaw val : raws) {
-            Object[] ref = new Object[INDEXABLES_RAW_COLUMNS.length];
-            ref[COLUMN_INDEX_RAW_TITLE] = val.title;
-            ref[COLUMN_INDEX_RAW_SUMMARY_ON] = val.summaryOn;
-            ref[COLUMN_INDEX_RAW_SUMMARY_OFF] = val.summaryOff;
-            ref[COLUMN_INDEX_RAW_ENTRIES] = val.entries;
-            ref[COLUMN_INDEX_RAW_KEYWORDS] = val.keywords;
-            ref[COLUMN_INDEX_RAW_SCREEN_TITLE] = val.screenTitle;
-            ref[COLUMN_INDEX_RAW_CLASS_NAME] = val.className;
-            ref[COLUMN_INDEX_RAW_ICON_RESID] = val.iconResId;
-            ref[COLUMN_INDEX_RAW_INTENT_ACTION] = val.intentAction;
-            ref[COLUMN_INDEX_RAW_INTENT_TARGET_PACKAGE] = val.intentTargetPackage;
-            ref[COLUMN_INDEX_RAW_INTENT_TARGET_CLASS] = val.intentTargetClass;
-            ref[COLUMN_INDEX_RAW_KEY] = val.key;
-            ref[COLUMN_INDEX_RAW_USER_ID] = val.userId;
-            cursor.addRow(ref);
-        }
-
-        return cursor;
+        return new IndexableListCursor<SearchIndexableRaw>(INDEXABLES_RAW_COLUMNS, raws) {
+            @Override
+            Object getValue(SearchIndexableRaw val, int column) {
+                switch (column) {
+                    case COLUMN_INDEX_RAW_TITLE:
+                        return val.title;
+                    case COLUMN_INDEX_RAW_SUMMARY_ON:
+                        return val.summaryOn;
+                    case COLUMN_INDEX_RAW_SUMMARY_OFF:
+                        return val.summaryOff;
+                    case COLUMN_INDEX_RAW_ENTRIES:
+                        return val.entries;
+                    case COLUMN_INDEX_RAW_KEYWORDS:
+                        return val.keywords;
+                    case COLUMN_INDEX_RAW_SCREEN_TITLE:
+                        return val.screenTitle;
+                    case COLUMN_INDEX_RAW_CLASS_NAME:
+                        return val.className;
+                    case COLUMN_INDEX_RAW_ICON_RESID:
+                        return val.iconResId;
+                    case COLUMN_INDEX_RAW_INTENT_ACTION:
+                        return val.intentAction;
+                    case COLUMN_INDEX_RAW_INTENT_TARGET_PACKAGE:
+                        return val.intentTargetPackage;
+                    case COLUMN_INDEX_RAW_INTENT_TARGET_CLASS:
+                        return val.intentTargetClass;
+                    case COLUMN_INDEX_RAW_KEY:
+                        return val.key;
+                    case COLUMN_INDEX_RAW_USER_ID:
+                        return val.userId;
+                    default:
+                        return null;
+                }
+            }
+        };
     }
 
     /**
@@ -148,15 +314,14 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
      */
     @Override
     public Cursor queryNonIndexableKeys(String[] projection) {
-        MatrixCursor cursor = new MatrixCursor(NON_INDEXABLES_KEYS_COLUMNS);
         final List<String> nonIndexableKeys = getNonIndexableKeysFromProvider(getContext());
-        for (String nik : nonIndexableKeys) {
-            final Object[] ref = new Object[NON_INDEXABLES_KEYS_COLUMNS.length];
-            ref[COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE] = nik;
-            cursor.addRow(ref);
-        }
-
-        return cursor;
+        mDeltaTracker.recordEmitted(nonIndexableKeys);
+        return new IndexableListCursor<String>(NON_INDEXABLES_KEYS_COLUMNS, nonIndexableKeys) {
+            @Override
+            Object getValue(String nik, int column) {
+                return column == COLUMN_INDEX_NON_INDEXABLE_KEYS_KEY_VALUE ? nik : null;
+            }
+        };
     }
 
     @Override
@@ -221,52 +386,143 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
     private List<String> getNonIndexableKeysFromProvider(Context context) {
         final Collection<Class> values = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+        if (FeatureFlagUtils.isEnabled(context, FeatureFlags.PARALLEL_NON_INDEXABLE_KEYS)) {
+            return getNonIndexableKeysInParallel(context, values);
+        }
+
         final List<String> nonIndexableKeys = new ArrayList<>();
+        for (Class<?> clazz : values) {
+            final List<String> providerNonIndexableKeys =
+                    getNonIndexableKeysFromProvider(context, clazz);
+            if (providerNonIndexableKeys != null) {
+                nonIndexableKeys.addAll(providerNonIndexableKeys);
+            }
+        }
+        return nonIndexableKeys;
+    }
 
+    /**
+     * Collects the non-indexable keys of every provider in {@param values} on a bounded executor.
+     *
+     * <p>Providers that haven't answered within {@link #PROVIDER_TIMEOUT_MS} of the start of the
+     * query contribute the keys they returned last time, so slow providers don't hold up the
+     * whole query. A provider with no last known keys is waited for, or run on the query thread if
+     * it hasn't started, since dropping its keys would make hidden settings searchable.
+     */
+    @VisibleForTesting
+    List<String> getNonIndexableKeysInParallel(Context context, Collection<Class> values) {
+        final ExecutorService executor = getNonIndexableKeysExecutor();
+        final List<Class<?>> classes = new ArrayList<>(values.size());
+        final List<Future<List<String>>> futures = new ArrayList<>(values.size());
         for (Class<?> clazz : values) {
-            final long startTime = System.currentTimeMillis();
-            Indexable.SearchIndexProvider provider = DatabaseIndexingUtils.getSearchIndexProvider(
-                    clazz);
+            classes.add(clazz);
+            futures.add(executor.submit(() -> getNonIndexableKeysFromProvider(context, clazz)));
+        }
 
+        final long deadline = SystemClock.elapsedRealtime() + PROVIDER_TIMEOUT_MS;
+        final List<String> nonIndexableKeys = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final Future<List<String>> future = futures.get(i);
+            final Class<?> clazz = classes.get(i);
             List<String> providerNonIndexableKeys;
             try {
-                providerNonIndexableKeys = provider.getNonIndexableKeys(context);
-            } catch (Exception e) {
-                // Catch a generic crash. In the absence of the catch, the background thread will
-                // silently fail anyway, so we aren't losing information by catching the exception.
-                // We crash when the system property exists so that we can test if crashes need to
-                // be fixed.
-                // The gain is that if there is a crash in a specific controller, we don't lose all
-                // non-indexable keys, but we can still find specific crashes in development.
-                if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
-                    throw new RuntimeException(e);
+                try {
+                    providerNonIndexableKeys = future.get(
+                            Math.max(0, deadline - SystemClock.elapsedRealtime()),
+                            TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    providerNonIndexableKeys = sLastKnownNonIndexableKeys.get(clazz.getName());
+                    if (providerNonIndexableKeys != null) {
+                        Log.w(TAG, clazz.getName()
+                                + "#getNonIndexableKeys timed out, using last known keys");
+                        future.cancel(true /* mayInterruptIfRunning */);
+                    } else {
+                        Log.w(TAG, clazz.getName()
+                                + "#getNonIndexableKeys timed out with no last known keys");
+                        providerNonIndexableKeys = future.cancel(false /* mayInterruptIfRunning */)
+                                ? getNonIndexableKeysFromProvider(context, clazz)
+                                : future.get();
+                    }
                 }
-                Log.e(TAG, "Error trying to get non-indexable keys from: " + clazz.getName(), e);
-                continue;
+            } catch (ExecutionException e) {
+                // Only reached when SYSPROP_CRASH_ON_ERROR is set, rethrow on the query thread.
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Interrupted while collecting non-indexable keys", e);
+                Thread.currentThread().interrupt();
+                break;
             }
 
-            if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
-                if (DEBUG) {
-                    final long totalTime = System.currentTimeMillis() - startTime;
-                    Log.d(TAG, "No indexable, total time " + totalTime);
-                }
-                continue;
+            if (providerNonIndexableKeys != null) {
+                nonIndexableKeys.addAll(providerNonIndexableKeys);
             }
+        }
+        return nonIndexableKeys;
+    }
 
-            if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
-                Log.v(TAG, provider + " tried to add an empty non-indexable key");
+    /**
+     * @return the valid non-indexable keys of the search index provider of {@param clazz}, or
+     * {@code null} if the provider failed.
+     */
+    private List<String> getNonIndexableKeysFromProvider(Context context, Class<?> clazz) {
+        final long startTime = System.currentTimeMillis();
+        Indexable.SearchIndexProvider provider = DatabaseIndexingUtils.getSearchIndexProvider(
+                clazz);
+
+        List<String> providerNonIndexableKeys;
+        try {
+            providerNonIndexableKeys = provider.getNonIndexableKeys(context);
+            logProviderTime("getNonIndexableKeys", clazz, startTime);
+        } catch (Exception e) {
+            // Catch a generic crash. In the absence of the catch, the background thread will
+            // silently fail anyway, so we aren't losing information by catching the exception.
+            // We crash when the system property exists so that we can test if crashes need to
+            // be fixed.
+            // The gain is that if there is a crash in a specific controller, we don't lose all
+            // non-indexable keys, but we can still find specific crashes in development.
+            if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
+                throw new RuntimeException(e);
             }
+            Log.e(TAG, "Error trying to get non-indexable keys from: " + clazz.getName(), e);
+            return null;
+        }
 
+        if (providerNonIndexableKeys == null || providerNonIndexableKeys.isEmpty()) {
             if (DEBUG) {
                 final long totalTime = System.currentTimeMillis() - startTime;
-                Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
-                        + totalTime);
+                Log.d(TAG, "No indexable, total time " + totalTime);
             }
+            sLastKnownNonIndexableKeys.put(clazz.getName(), new ArrayList<>());
+            return null;
+        }
 
-            nonIndexableKeys.addAll(providerNonIndexableKeys);
+        if (providerNonIndexableKeys.removeAll(INVALID_KEYS)) {
+            Log.v(TAG, provider + " tried to add an empty non-indexable key");
         }
 
-        return nonIndexableKeys;
+        if (DEBUG) {
+            final long totalTime = System.currentTimeMillis() - startTime;
+            Log.d(TAG, "Non-indexables " + providerNonIndexableKeys.size() + ", total time "
+                    + totalTime);
+        }
+
+        sLastKnownNonIndexableKeys.put(clazz.getName(),
+                new ArrayList<>(providerNonIndexableKeys));
+        return providerNonIndexableKeys;
+    }
+
+    private static synchronized ExecutorService getNonIndexableKeysExecutor() {
+        if (sNonIndexableKeysExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_NON_INDEXABLE_KEYS_PARALLELISM, MAX_NON_INDEXABLE_KEYS_PARALLELISM,
+                    EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sNonIndexableKeysExecutor = executor;
+        }
+        return sNonIndexableKeysExecutor;
     }
 
     private List<SearchIndexableResource> getSearchIndexableResourcesFromProvider(Context context) {
@@ -278,8 +534,10 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
             Indexable.SearchIndexProvider provider = DatabaseIndexingUtils.getSearchIndexProvider(
                     clazz);
 
+            final long startTime = System.currentTimeMillis();
             final List<SearchIndexableResource> resList =
                     provider.getXmlResourcesToIndex(context, true);
+            logProviderTime("getXmlResourcesToIndex", clazz, startTime);
 
             if (resList == null) {
                 continue;
@@ -305,8 +563,10 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         for (Class<?> clazz : values) {
             Indexable.SearchIndexProvider provider = DatabaseIndexingUtils.getSearchIndexProvider(
                     clazz);
+            final long startTime = System.currentTimeMillis();
             final List<SearchIndexableRaw> providerRaws = provider.getRawDataToIndex(context,
                     true /* enabled */);
+            logProviderTime("getRawDataToIndex", clazz, startTime);
 
             if (providerRaws == null) {
                 continue;
@@ -323,4 +583,39 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
         return rawList;
     }
+
+    /**
+     * Re-evaluates the non-indexable keys in the background, and notifies observers of
+     * {@link #NON_INDEXABLES_KEYS_DELTA_URI} when they differ from the ones last queried.
+     */
+    @VisibleForTesting
+    void checkNonIndexableKeysDelta() {
+        if (!mDeltaCheckPending.compareAndSet(false, true)) {
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            mDeltaCheckPending.set(false);
+            final Context context = getContext();
+            final NonIndexableKeysDeltaTracker.Delta delta =
+                    mDeltaTracker.peekDelta(getNonIndexableKeysFromProvider(context));
+            if (!delta.isEmpty()) {
+                Log.d(TAG, "Non-indexable keys changed, added " + delta.mAdded.size()
+                        + ", removed " + delta.mRemoved.size());
+                notifyNonIndexableKeysChanged(context);
+            }
+        });
+    }
+
+    /**
+     * Logs how long {@param method} of the search index provider of {@param clazz} took, as a
+     * warning when it exceeds {@link #SLOW_PROVIDER_THRESHOLD_MS}.
+     */
+    private static void logProviderTime(String method, Class<?> clazz, long startTime) {
+        final long totalTime = System.currentTimeMillis() - startTime;
+        if (totalTime > SLOW_PROVIDER_THRESHOLD_MS) {
+            Log.w(TAG, clazz.getName() + "#" + method + " took " + totalTime + "ms");
+        } else if (DEBUG) {
+            Log.d(TAG, clazz.getName() + "#" + method + " took " + totalTime + "ms");
+        }
+    }
 }
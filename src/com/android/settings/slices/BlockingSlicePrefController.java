@@ -22,6 +22,9 @@ import androidx.slice.Slice;
 
 import com.android.settings.core.BasePreferenceController;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * The blocking slice preference controller. It will make whole page invisible for a certain time
  * until {@link Slice} is fully loaded.
@@ -29,10 +32,25 @@ import com.android.settings.core.BasePreferenceController;
 public class BlockingSlicePrefController extends SlicePreferenceController implements
         BasePreferenceController.UiBlocker {
 
+    private List<String> mBlockerDependencies = Collections.emptyList();
+
     public BlockingSlicePrefController(Context context, String preferenceKey) {
         super(context, preferenceKey);
     }
 
+    /**
+     * Sets the keys of the blockers this slice is revealed along with. Must be called before the
+     * page is created.
+     */
+    public void setBlockerDependencies(List<String> blockerDependencies) {
+        mBlockerDependencies = blockerDependencies;
+    }
+
+    @Override
+    public List<String> getBlockerDependencies() {
+        return mBlockerDependencies;
+    }
+
     @Override
     public void onChanged(Slice slice) {
         super.onChanged(slice);
@@ -26,6 +26,7 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.net.Uri;
 import android.os.StrictMode;
+import android.os.SystemClock;
 import android.provider.Settings;
 import android.provider.SettingsSlicesContract;
 import android.text.TextUtils;
@@ -57,6 +58,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A {@link SliceProvider} for Settings to enabled inline results in system apps.
@@ -118,6 +124,13 @@ public class SettingsSliceProvider extends SliceProvider {
     public static final String EXTRA_SLICE_PLATFORM_DEFINED =
             "com.android.settings.slice.extra.platform";
 
+    /**
+     * Time an indexed slice may take to build synchronously in {@link #onBindSlice} before a stub
+     * is returned instead.
+     */
+    @VisibleForTesting
+    static final long SYNC_BIND_BUDGET_MILLIS = 50;
+
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
     @VisibleForTesting
@@ -219,6 +232,13 @@ public class SettingsSliceProvider extends SliceProvider {
 
             SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
             if (cachedSliceData == null) {
+                if (FeatureFactory.getFactory(getContext()).getSlicesFeatureProvider()
+                        .isSyncSliceBindEnabled(getContext())) {
+                    final Slice slice = bindIndexedSlice(sliceUri);
+                    if (slice != null) {
+                        return slice;
+                    }
+                }
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
@@ -227,7 +247,11 @@ public class SettingsSliceProvider extends SliceProvider {
             if (!getPinnedSlices().contains(sliceUri)) {
                 mSliceWeakDataCache.remove(sliceUri);
             }
-            return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
+            final long startBindTime = SystemClock.elapsedRealtimeNanos();
+            final Slice slice = SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
+            SliceBindLatencyHistogram.getInstance().record(cachedSliceData.getKey(),
+                    SystemClock.elapsedRealtimeNanos() - startBindTime);
+            return slice;
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
         }
@@ -394,15 +418,7 @@ public class SettingsSliceProvider extends SliceProvider {
             return;
         }
 
-        final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
-                getContext(), sliceData);
-
-        final IntentFilter filter = controller.getIntentFilter();
-        if (filter != null) {
-            registerIntentToUri(filter, uri);
-        }
-
-        ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
+        registerSliceController(uri, sliceData);
 
         mSliceWeakDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
@@ -416,6 +432,89 @@ public class SettingsSliceProvider extends SliceProvider {
         ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
     }
 
+    /**
+     * Builds the {@link Slice} for {@param uri} without a second bind, provided its
+     * {@link SliceData} is already held by {@link SliceDataCache}. The slice is built on a
+     * background thread and awaited for at most {@link #SYNC_BIND_BUDGET_MILLIS}; past that a
+     * stub is returned and the bind task itself delivers the slice through {@code notifyChange}
+     * once built.
+     *
+     * @return the bound {@link Slice} or stub, or {@code null} if the data is not in memory.
+     */
+    @VisibleForTesting
+    Slice bindIndexedSlice(Uri uri) {
+        final SliceData sliceData = mSlicesDatabaseAccessor.getCachedSliceDataFromUri(uri);
+        if (sliceData == null) {
+            return null;
+        }
+
+        final long startBindTime = SystemClock.elapsedRealtimeNanos();
+        // Set by whichever of the bind task and this thread is done with the slice first: the
+        // task when it completes, or this thread when it gives up waiting.
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final FutureTask<Slice> bindTask = new FutureTask<Slice>(() -> {
+            registerSliceController(uri, sliceData);
+            return SliceBuilderUtils.buildSlice(getContext(), sliceData);
+        }) {
+            @Override
+            protected void done() {
+                if (claimed.compareAndSet(false, true)) {
+                    // Built within budget, onBindSlice returns it.
+                    return;
+                }
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Log.w(TAG, "Failed to bind slice for uri: " + uri, e);
+                    return;
+                }
+                mSliceWeakDataCache.put(uri, sliceData);
+                getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+            }
+        };
+        ThreadUtils.postOnBackgroundThread(bindTask);
+
+        final SliceBindLatencyHistogram histogram = SliceBindLatencyHistogram.getInstance();
+        try {
+            Slice slice;
+            try {
+                slice = bindTask.get(SYNC_BIND_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    Log.d(TAG, "Bind budget exceeded for uri: " + uri);
+                    histogram.recordFallback(sliceData.getKey());
+                    return getSliceStub(uri);
+                }
+                // Completed right at the deadline, the result is already available.
+                slice = bindTask.get();
+            }
+            histogram.record(sliceData.getKey(),
+                    SystemClock.elapsedRealtimeNanos() - startBindTime);
+            // As in loadSlice(), so that the controller is only registered once for the uri.
+            mSliceWeakDataCache.put(uri, sliceData);
+            return slice;
+        } catch (InterruptedException | ExecutionException e) {
+            Log.w(TAG, "Failed to bind slice for uri: " + uri, e);
+            return null;
+        }
+    }
+
+    /**
+     * Registers the intent filter and starts the background worker of the controller backing
+     * {@param sliceData}.
+     */
+    private void registerSliceController(Uri uri, SliceData sliceData) {
+        final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
+                getContext(), sliceData);
+
+        final IntentFilter filter = controller.getIntentFilter();
+        if (filter != null) {
+            registerIntentToUri(filter, uri);
+        }
+
+        ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
+    }
+
     /**
      * @return an empty {@link Slice} with {@param uri} to be used as a stub while the real
      * {@link SliceData} is loaded from {@link SlicesDatabaseHelper.Tables#TABLE_SLICES_INDEX}.
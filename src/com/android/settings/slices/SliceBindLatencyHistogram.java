@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.slices;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.core.instrumentation.LatencyHistogram;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+
+/**
+ * Records how long {@link SettingsSliceProvider#onBindSlice} takes for each slice key, in a
+ * {@link LatencyHistogram} per key.
+ */
+public class SliceBindLatencyHistogram {
+
+    /**
+     * Upper bounds, in milliseconds, of each bucket. The last bucket is unbounded.
+     */
+    @VisibleForTesting
+    static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {4, 8, 16, 32, 64, 128, 256};
+
+    private static SliceBindLatencyHistogram sSingleton;
+
+    private final Map<String, Entry> mEntries = new ArrayMap<>();
+
+    public static synchronized SliceBindLatencyHistogram getInstance() {
+        if (sSingleton == null) {
+            sSingleton = new SliceBindLatencyHistogram();
+        }
+        return sSingleton;
+    }
+
+    /**
+     * Records a bind of {@param key} which took {@param latencyNanos}.
+     */
+    public synchronized void record(String key, long latencyNanos) {
+        getEntry(key).mHistogram.record(latencyNanos);
+    }
+
+    /**
+     * Records a bind of {@param key} which returned a stub slice because the synchronous bind
+     * budget was exceeded.
+     */
+    public synchronized void recordFallback(String key) {
+        getEntry(key).mFallbacks++;
+    }
+
+    @VisibleForTesting
+    synchronized int getCount(String key, int bucket) {
+        final Entry entry = mEntries.get(key);
+        return entry == null ? 0 : entry.mHistogram.getCount(bucket);
+    }
+
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("bucketUpperBoundsMillis",
+                LatencyHistogram.dumpBucketUpperBounds(BUCKET_UPPER_BOUNDS_MILLIS));
+
+        final JSONObject keys = new JSONObject();
+        for (Map.Entry<String, Entry> entry : mEntries.entrySet()) {
+            final JSONObject keyObj = entry.getValue().mHistogram.dump();
+            keyObj.put("fallbacks", entry.getValue().mFallbacks);
+            keys.put(entry.getKey(), keyObj);
+        }
+        obj.put("keys", keys);
+        return obj;
+    }
+
+    private Entry getEntry(String key) {
+        Entry entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            mEntries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static class Entry {
+        final LatencyHistogram mHistogram = new LatencyHistogram(BUCKET_UPPER_BOUNDS_MILLIS);
+        int mFallbacks;
+    }
+}
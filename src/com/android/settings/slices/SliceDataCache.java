@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.slices;
+
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Bounded in-memory cache of indexed {@link SliceData}, keyed by slice key.
+ *
+ * <p>Entries are stored without a {@link android.net.Uri}, exactly as indexed by
+ * {@link SlicesIndexer}, and are added one key at a time as slices are looked up. The cache is
+ * sized by an estimate of the memory held by each entry and is invalidated whenever the index is
+ * rebuilt.
+ */
+public class SliceDataCache {
+
+    /**
+     * Approximate upper bound, in bytes, of the memory held by cached entries.
+     */
+    @VisibleForTesting
+    static final int MAX_SIZE_BYTES = 128 * 1024;
+
+    // Rough cost of the SliceData object and its fields, excluding string contents.
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static SliceDataCache sSingleton;
+
+    private final LruCache<String, SliceData> mCache;
+
+    private int mGeneration;
+
+    public static synchronized SliceDataCache getInstance() {
+        if (sSingleton == null) {
+            sSingleton = new SliceDataCache(MAX_SIZE_BYTES);
+        }
+        return sSingleton;
+    }
+
+    @VisibleForTesting
+    SliceDataCache(int maxSizeBytes) {
+        mCache = new LruCache<String, SliceData>(maxSizeBytes) {
+            @Override
+            protected int sizeOf(String key, SliceData value) {
+                return getSizeEstimate(value);
+            }
+        };
+    }
+
+    /**
+     * @return the cached {@link SliceData} for {@param key}, or {@code null} on a miss.
+     */
+    public SliceData get(String key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * @return the generation to pass to {@link #put} for data read from the index from now on.
+     */
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches {@param sliceData}, unless the cache was invalidated since {@param generation} was
+     * read, in which case the data may predate the current index.
+     */
+    public synchronized void put(int generation, SliceData sliceData) {
+        if (generation == mGeneration) {
+            mCache.put(sliceData.getKey(), sliceData);
+        }
+    }
+
+    /**
+     * Drops every entry, to be called when the underlying index changes.
+     */
+    public synchronized void invalidate() {
+        mGeneration++;
+        mCache.evictAll();
+    }
+
+    public synchronized JSONObject dump() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("generation", mGeneration);
+        obj.put("entries", mCache.snapshot().size());
+        obj.put("size", mCache.size());
+        obj.put("maxSize", mCache.maxSize());
+        obj.put("hits", mCache.hitCount());
+        obj.put("misses", mCache.missCount());
+        obj.put("evictions", mCache.evictionCount());
+        return obj;
+    }
+
+    @VisibleForTesting
+    static int getSizeEstimate(SliceData data) {
+        int chars = length(data.getKey())
+                + length(data.getTitle())
+                + length(data.getSummary())
+                + length(data.getScreenTitle())
+                + length(data.getKeywords())
+                + length(data.getFragmentClassName())
+                + length(data.getPreferenceController())
+                + length(data.getUnavailableSliceSubtitle());
+        return ENTRY_OVERHEAD_BYTES + chars * 2;
+    }
+
+    private static int length(CharSequence value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -28,12 +28,15 @@ import android.accessibilityservice.AccessibilityServiceInfo;
 import android.app.settings.SettingsEnums;
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.ServiceInfo;
 import android.content.res.Resources;
 import android.content.res.XmlResourceParser;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
 import android.text.TextUtils;
 import android.util.AttributeSet;
@@ -59,12 +62,23 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 
 /**
  * Converts all Slice sources into {@link SliceData}.
@@ -78,7 +92,20 @@ class SliceDataConverter {
 
     private static final String NODE_NAME_PREFERENCE_SCREEN = "PreferenceScreen";
 
+    // Number of the slowest sources named in the conversion time log.
+    private static final int LOGGED_SLOWEST_SOURCES = 5;
+
+    /**
+     * Upper bound on the number of threads used to convert providers in parallel.
+     */
+    @VisibleForTesting
+    static final int MAX_CONVERSION_PARALLELISM = 4;
+
+    private static final String STRING_RESOURCE_TYPE = "string";
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
+    // XML resources listed by each provider while fingerprinting, keyed by fragment class name.
+    private final Map<String, List<SearchIndexableResource>> mXmlResources = new HashMap<>();
     private Context mContext;
 
     public SliceDataConverter(Context context) {
@@ -97,13 +124,31 @@ class SliceDataConverter {
      * {@link com.android.settings.core.BasePreferenceController}.
      */
     public List<SliceData> getSliceData() {
-        List<SliceData> sliceData = new ArrayList<>();
+        final List<SliceData> sliceData = getSliceDataForSources(null /* sources */);
+
+        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
+        sliceData.addAll(a11ySliceData);
+        return sliceData;
+    }
+
+    /**
+     * @return a list of {@link SliceData} collected from the {@link SearchIndexProvider} of each
+     * fragment in {@param sources}, or from every provider when {@param sources} is {@code null}.
+     * Accessibility services are not included.
+     */
+    List<SliceData> getSliceDataForSources(Set<String> sources) {
+        final List<Callable<List<SliceData>>> conversions = new ArrayList<>();
+        // Time spent converting each source, by fragment class name.
+        final Map<String, Long> conversionTimes = new ConcurrentHashMap<>();
 
         final Collection<Class> indexableClasses = FeatureFactory.getFactory(mContext)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
         for (Class clazz : indexableClasses) {
             final String fragmentName = clazz.getName();
+            if (sources != null && !sources.contains(fragmentName)) {
+                continue;
+            }
 
             final SearchIndexProvider provider = DatabaseIndexingUtils.getSearchIndexProvider(
                     clazz);
@@ -114,22 +159,201 @@ class SliceDataConverter {
                 continue;
             }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+            final List<SearchIndexableResource> resList = mXmlResources.containsKey(fragmentName)
+                    ? mXmlResources.get(fragmentName)
+                    : provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+            conversions.add(() -> {
+                final long startTime = SystemClock.elapsedRealtime();
+                final List<SliceData> sliceData = getSliceDataFromProvider(resList, fragmentName);
+                conversionTimes.put(fragmentName, SystemClock.elapsedRealtime() - startTime);
+                return sliceData;
+            });
         }
+        mXmlResources.clear();
+
+        final boolean parallel = FeatureFactory.getFactory(mContext).getSlicesFeatureProvider()
+                .isParallelSliceConversionEnabled(mContext);
+        final long startTime = SystemClock.elapsedRealtime();
+        final List<SliceData> sliceData = parallel
+                ? convertInParallel(conversions) : convertSerially(conversions);
+        logConversionTimes(conversionTimes, SystemClock.elapsedRealtime() - startTime);
+        return sliceData;
+    }
 
-        final List<SliceData> a11ySliceData = getAccessibilitySliceData();
-        sliceData.addAll(a11ySliceData);
+    /**
+     * Logs how long converting the sources took in one line, along with the slowest sources.
+     */
+    private static void logConversionTimes(Map<String, Long> conversionTimes, long totalTime) {
+        final List<Map.Entry<String, Long>> entries = new ArrayList<>(conversionTimes.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        final StringBuilder log = new StringBuilder("Converted ").append(entries.size())
+                .append(" sources in ").append(totalTime).append("ms, slowest:");
+        for (int i = 0; i < Math.min(LOGGED_SLOWEST_SOURCES, entries.size()); i++) {
+            final Map.Entry<String, Long> entry = entries.get(i);
+            log.append(' ').append(entry.getKey().substring(entry.getKey().lastIndexOf('.') + 1))
+                    .append('=').append(entry.getValue()).append("ms");
+        }
+        Log.d(TAG, log.toString());
+    }
+
+    private List<SliceData> convertSerially(List<Callable<List<SliceData>>> conversions) {
+        final List<SliceData> sliceData = new ArrayList<>();
+        for (Callable<List<SliceData>> conversion : conversions) {
+            try {
+                sliceData.addAll(conversion.call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
         return sliceData;
     }
 
-    private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
-            String fragmentName) {
+    /**
+     * Runs {@param conversions} on a bounded {@link ForkJoinPool} and merges the results in the
+     * order of {@param conversions}, so the output is identical to {@link #convertSerially}.
+     */
+    @VisibleForTesting
+    List<SliceData> convertInParallel(List<Callable<List<SliceData>>> conversions) {
+        final int parallelism = Math.max(1, Math.min(MAX_CONVERSION_PARALLELISM,
+                Runtime.getRuntime().availableProcessors()));
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
         final List<SliceData> sliceData = new ArrayList<>();
+        try {
+            final List<Future<List<SliceData>>> results = pool.invokeAll(conversions);
+            for (Future<List<SliceData>> result : results) {
+                sliceData.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting slice data", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pool.shutdown();
+        }
+        return sliceData;
+    }
+
+    /**
+     * @return a map from fragment class name to a fingerprint of the content the fragment's
+     * {@link SearchIndexProvider} is converted from: the entries of every indexed XML resource,
+     * including the controllers they declare and the text their string references resolve to. A
+     * source whose fingerprint is unchanged does not need to be parsed again.
+     *
+     * <p>The XML resources listed by each provider are kept for the next call to
+     * {@link #getSliceDataForSources}, so they are not queried twice.
+     */
+    Map<String, Long> getSourceFingerprints() {
+        final Map<String, Long> fingerprints = new TreeMap<>();
+        mXmlResources.clear();
 
-        final List<SearchIndexableResource> resList =
-                provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+        final Collection<Class> indexableClasses = FeatureFactory.getFactory(mContext)
+                .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
+
+        for (Class clazz : indexableClasses) {
+            final String fragmentName = clazz.getName();
+            final SearchIndexProvider provider = DatabaseIndexingUtils.getSearchIndexProvider(
+                    clazz);
+            if (provider == null) {
+                continue;
+            }
+
+            final List<SearchIndexableResource> resList =
+                    provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+            mXmlResources.put(fragmentName, resList != null
+                    ? resList : Collections.<SearchIndexableResource>emptyList());
+
+            final CRC32 crc = new CRC32();
+            updateFingerprint(crc, fragmentName);
+            if (resList != null) {
+                for (SearchIndexableResource resource : resList) {
+                    updateXmlFingerprint(crc, resource.xmlResId);
+                }
+            }
+            fingerprints.put(fragmentName, crc.getValue());
+        }
+
+        return fingerprints;
+    }
+
+    /**
+     * @return a fingerprint of the state shared by every source which per-source fingerprints
+     * do not cover: the build, the locale and overlays resources resolve against, and the version
+     * of the controllers deciding which slices are indexed. When it changes the index is rebuilt
+     * in full.
+     */
+    long getSharedFingerprint() {
+        final CRC32 crc = new CRC32();
+        updateFingerprint(crc, Build.FINGERPRINT);
+        updateFingerprint(crc, Locale.getDefault().toString());
+        final ApplicationInfo info = mContext.getApplicationInfo();
+        if (info != null && info.resourceDirs != null) {
+            for (String resourceDir : info.resourceDirs) {
+                updateFingerprint(crc, resourceDir);
+            }
+        }
+        try {
+            updateFingerprint(crc, String.valueOf(mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0 /* flags */)
+                    .getLongVersionCode()));
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Could not find package info for " + mContext.getPackageName(), e);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Adds every tag and attribute of the XML resource {@param xmlResId} to {@param crc}. Raw
+     * attribute values carry resource ids and controller class names; string references are
+     * also resolved, so text changed under an unchanged id is detected.
+     */
+    private void updateXmlFingerprint(CRC32 crc, int xmlResId) {
+        updateFingerprint(crc, String.valueOf(xmlResId));
+        if (xmlResId == 0) {
+            return;
+        }
+
+        final Resources res = mContext.getResources();
+        try (XmlResourceParser parser = res.getXml(xmlResId)) {
+            int type;
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                updateFingerprint(crc, parser.getName());
+                for (int i = 0; i < parser.getAttributeCount(); i++) {
+                    updateFingerprint(crc, parser.getAttributeName(i));
+                    updateFingerprint(crc, parser.getAttributeValue(i));
+                    final int refId = parser.getAttributeResourceValue(i, 0 /* defaultValue */);
+                    if (refId != 0 && STRING_RESOURCE_TYPE.equals(
+                            res.getResourceTypeName(refId))) {
+                        updateFingerprint(crc, String.valueOf(res.getText(refId)));
+                    }
+                }
+            }
+        } catch (XmlPullParserException | IOException | Resources.NotFoundException e) {
+            // Conversion reports the error; a changed fingerprint makes it retry next time.
+            updateFingerprint(crc, e.toString());
+        }
+    }
+
+    private static void updateFingerprint(CRC32 crc, String value) {
+        if (value != null) {
+            crc.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separate values so adjacent ones cannot shift into each other.
+        crc.update(0);
+    }
+
+    private List<SliceData> getSliceDataFromProvider(List<SearchIndexableResource> resList,
+            String fragmentName) {
+        final List<SliceData> sliceData = new ArrayList<>();
 
         if (resList == null) {
             return sliceData;
@@ -256,7 +480,7 @@ class SliceDataConverter {
         return xmlSliceData;
     }
 
-    private List<SliceData> getAccessibilitySliceData() {
+    List<SliceData> getAccessibilitySliceData() {
         final List<SliceData> sliceData = new ArrayList<>();
 
         final String accessibilityControllerClassName =
@@ -74,9 +74,30 @@ public class SlicesDatabaseAccessor {
         if (pathData == null) {
             throw new IllegalStateException("Invalid Slices uri: " + uri);
         }
-        try (Cursor cursor = getIndexedSliceData(pathData.second /* key */)) {
-            return buildSliceData(cursor, uri, pathData.first /* isIntentOnly */);
+        final SliceData sliceData = getCachedSliceData(pathData.second /* key */);
+        return buildSliceData(sliceData, uri, pathData.first /* isIntentOnly */);
+    }
+
+    /**
+     * @return the {@link SliceData} for the key provided by the {@param uri}, with the
+     * {@param uri} added, if it is held by {@link SliceDataCache} and the index is current for
+     * this build and locale, or {@code null} otherwise. The index isn't rebuilt, nor the database
+     * queried.
+     */
+    public SliceData getCachedSliceDataFromUri(Uri uri) {
+        final Pair<Boolean, String> pathData = SliceBuilderUtils.getPathData(uri);
+        if (pathData == null) {
+            return null;
+        }
+        // The cache may predate a new build or locale, which needs the index rebuilt first.
+        if (!mHelper.isSliceDataIndexed()) {
+            return null;
         }
+        final SliceData sliceData = SliceDataCache.getInstance().get(pathData.second /* key */);
+        if (sliceData == null) {
+            return null;
+        }
+        return buildSliceData(sliceData, uri, pathData.first /* isIntentOnly */);
     }
 
     /**
@@ -85,9 +106,7 @@ public class SlicesDatabaseAccessor {
      * Used when handling the action of the {@link Slice}.
      */
     public SliceData getSliceDataFromKey(String key) {
-        try (Cursor cursor = getIndexedSliceData(key)) {
-            return buildSliceData(cursor, null /* uri */, false /* isIntentOnly */);
-        }
+        return getCachedSliceData(key);
     }
 
     /**
@@ -121,9 +140,29 @@ public class SlicesDatabaseAccessor {
         return keys;
     }
 
-    private Cursor getIndexedSliceData(String path) {
+    /**
+     * @return the {@link SliceData} indexed for {@param key}, served from {@link SliceDataCache}
+     * when possible.
+     */
+    private SliceData getCachedSliceData(String key) {
         verifyIndexing();
 
+        final SliceDataCache cache = SliceDataCache.getInstance();
+        SliceData sliceData = cache.get(key);
+        if (sliceData != null) {
+            return sliceData;
+        }
+
+        // Read before querying, so a row read ahead of a re-index is not cached after it.
+        final int generation = cache.getGeneration();
+        try (Cursor cursor = getIndexedSliceData(key)) {
+            sliceData = buildSliceData(cursor, null /* uri */, false /* isIntentOnly */);
+        }
+        cache.put(generation, sliceData);
+        return sliceData;
+    }
+
+    private Cursor getIndexedSliceData(String path) {
         final String whereClause = buildKeyMatchWhereClause();
         final SQLiteDatabase database = mHelper.getReadableDatabase();
         final String[] selection = new String[]{path};
@@ -190,6 +229,23 @@ public class SlicesDatabaseAccessor {
                 .build();
     }
 
+    private SliceData buildSliceData(SliceData sliceData, Uri uri, boolean isIntentOnly) {
+        return new SliceData.Builder()
+                .setKey(sliceData.getKey())
+                .setTitle(sliceData.getTitle())
+                .setSummary(sliceData.getSummary())
+                .setScreenTitle(sliceData.getScreenTitle())
+                .setKeywords(sliceData.getKeywords())
+                .setIcon(sliceData.getIconResource())
+                .setFragmentName(sliceData.getFragmentClassName())
+                .setPreferenceControllerClassName(sliceData.getPreferenceController())
+                .setUri(uri)
+                .setPlatformDefined(sliceData.isPlatformDefined())
+                .setSliceType(isIntentOnly ? SliceData.SliceType.INTENT : sliceData.getSliceType())
+                .setUnavailableSliceSubtitle(sliceData.getUnavailableSliceSubtitle())
+                .build();
+    }
+
     private void verifyIndexing() {
         final long uidToken = Binder.clearCallingIdentity();
         try {
@@ -36,10 +36,11 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "slices_index.db";
     private static final String SHARED_PREFS_TAG = "slices_shared_prefs";
 
-    private static final int DATABASE_VERSION = 5;
+    private static final int DATABASE_VERSION = 6;
 
     public interface Tables {
         String TABLE_SLICES_INDEX = "slices_index";
+        String TABLE_SLICES_INDEX_SOURCES = "slices_index_sources";
     }
 
     public interface IndexColumns {
@@ -100,6 +101,18 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
         String UNAVAILABLE_SLICE_SUBTITLE = "unavailable_slice_subtitle";
     }
 
+    public interface SourceColumns {
+        /**
+         * Primary key of the DB. Class name of the fragment providing the indexed slices.
+         */
+        String SOURCE = "source";
+
+        /**
+         * Fingerprint of the inputs used to index the slices of the source.
+         */
+        String FINGERPRINT = "fingerprint";
+    }
+
     private static final String CREATE_SLICES_TABLE =
             "CREATE VIRTUAL TABLE " + Tables.TABLE_SLICES_INDEX + " USING fts4" +
                     "(" +
@@ -126,6 +139,15 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
                     IndexColumns.UNAVAILABLE_SLICE_SUBTITLE +
                     ");";
 
+    private static final String CREATE_SOURCES_TABLE =
+            "CREATE TABLE " + Tables.TABLE_SLICES_INDEX_SOURCES +
+                    "(" +
+                    SourceColumns.SOURCE +
+                    " TEXT PRIMARY KEY, " +
+                    SourceColumns.FINGERPRINT +
+                    " INTEGER" +
+                    ");";
+
     private final Context mContext;
 
     private static SlicesDatabaseHelper sSingleton;
@@ -189,11 +211,13 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     private void createDatabases(SQLiteDatabase db) {
         db.execSQL(CREATE_SLICES_TABLE);
+        db.execSQL(CREATE_SOURCES_TABLE);
         Log.d(TAG, "Created databases");
     }
 
     private void dropTables(SQLiteDatabase db) {
         db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SLICES_INDEX_SOURCES);
     }
 
     private void setBuildIndexed() {
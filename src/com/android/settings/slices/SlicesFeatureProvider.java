@@ -15,6 +15,18 @@ public interface SlicesFeatureProvider {
 
     SliceDataConverter getSliceDataConverter(Context context);
 
+    /**
+     * Returns {@code true} when {@link SliceDataConverter} should convert the search index
+     * providers concurrently instead of one after the other.
+     */
+    boolean isParallelSliceConversionEnabled(Context context);
+
+    /**
+     * Returns {@code true} when {@link SettingsSliceProvider} should build slices whose data is
+     * already in memory during the first bind, instead of returning a stub.
+     */
+    boolean isSyncSliceBindEnabled(Context context);
+
     /**
      * Starts a new UI session for the purpose of using Slices.
      *
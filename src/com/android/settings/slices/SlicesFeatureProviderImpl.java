@@ -19,7 +19,9 @@ package com.android.settings.slices;
 import android.content.Context;
 import android.net.Uri;
 import android.os.SystemClock;
+import android.util.FeatureFlagUtils;
 
+import com.android.settings.core.FeatureFlags;
 import com.android.settings.network.telephony.Enhanced4gLteSliceHelper;
 import com.android.settings.wifi.calling.WifiCallingSliceHelper;
 import com.android.settingslib.utils.ThreadUtils;
@@ -41,6 +43,16 @@ public class SlicesFeatureProviderImpl implements SlicesFeatureProvider {
         return mSliceDataConverter;
     }
 
+    @Override
+    public boolean isParallelSliceConversionEnabled(Context context) {
+        return FeatureFlagUtils.isEnabled(context, FeatureFlags.PARALLEL_SLICE_CONVERSION);
+    }
+
+    @Override
+    public boolean isSyncSliceBindEnabled(Context context) {
+        return FeatureFlagUtils.isEnabled(context, FeatureFlags.SYNC_SLICE_BIND);
+    }
+
     @Override
     public void newUiSession() {
         mUiSessionToken = SystemClock.elapsedRealtime();
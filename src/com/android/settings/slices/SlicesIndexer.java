@@ -18,18 +18,29 @@ package com.android.settings.slices;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.accessibility.AccessibilitySlicePreferenceController;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
+import com.android.settings.slices.SlicesDatabaseHelper.SourceColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
@@ -39,6 +50,42 @@ class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    /**
+     * Row of {@link Tables#TABLE_SLICES_INDEX_SOURCES} holding the fingerprint shared by every
+     * source. Not a valid class name, so it cannot clash with a fragment.
+     */
+    @VisibleForTesting
+    static final String SHARED_SOURCE = "#shared";
+
+    /**
+     * Column order must match the bind indices used in {@link #insertSliceData}.
+     */
+    private static final String INSERT_SLICE_SQL =
+            "INSERT OR REPLACE INTO " + Tables.TABLE_SLICES_INDEX +
+                    "(" +
+                    IndexColumns.KEY +
+                    ", " +
+                    IndexColumns.TITLE +
+                    ", " +
+                    IndexColumns.SUMMARY +
+                    ", " +
+                    IndexColumns.SCREENTITLE +
+                    ", " +
+                    IndexColumns.KEYWORDS +
+                    ", " +
+                    IndexColumns.ICON_RESOURCE +
+                    ", " +
+                    IndexColumns.FRAGMENT +
+                    ", " +
+                    IndexColumns.CONTROLLER +
+                    ", " +
+                    IndexColumns.PLATFORM_SLICE +
+                    ", " +
+                    IndexColumns.SLICE_TYPE +
+                    ", " +
+                    IndexColumns.UNAVAILABLE_SLICE_SUBTITLE +
+                    ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
@@ -58,7 +105,12 @@ class SlicesIndexer implements Runnable {
 
     /**
      * Synchronously takes data obtained from {@link SliceDataConverter} and indexes it into a
-     * SQLite database
+     * SQLite database.
+     *
+     * The first index is built from every source. Afterwards only the sources whose fingerprint
+     * changed since the last index are converted again, see
+     * {@link SliceDataConverter#getSourceFingerprints()}, unless the state shared by every source
+     * changed, see {@link SliceDataConverter#getSharedFingerprint()}.
      */
     protected void indexSliceData() {
         if (mHelper.isSliceDataIndexed()) {
@@ -71,9 +123,18 @@ class SlicesIndexer implements Runnable {
         long startTime = System.currentTimeMillis();
         database.beginTransaction();
         try {
-            mHelper.reconstruct(database);
-            List<SliceData> indexData = getSliceData();
-            insertSliceData(database, indexData);
+            final Map<String, Long> fingerprints = getSourceFingerprints();
+            final Map<String, Long> indexedFingerprints = getIndexedSourceFingerprints(database);
+            final Long sharedFingerprint = getSharedFingerprint();
+
+            if (!sharedFingerprint.equals(indexedFingerprints.remove(SHARED_SOURCE))) {
+                mHelper.reconstruct(database);
+                List<SliceData> indexData = getSliceData();
+                insertSliceData(database, indexData);
+            } else {
+                updateSliceData(database, fingerprints, indexedFingerprints);
+            }
+            insertSourceFingerprints(database, fingerprints, sharedFingerprint);
 
             mHelper.setIndexedState();
 
@@ -83,6 +144,7 @@ class SlicesIndexer implements Runnable {
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
+            SliceDataCache.getInstance().invalidate();
         }
     }
 
@@ -95,26 +157,155 @@ class SlicesIndexer implements Runnable {
     }
 
     @VisibleForTesting
-    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
+    List<SliceData> getSliceData(Set<String> sources) {
+        final SliceDataConverter converter = FeatureFactory.getFactory(mContext)
+                .getSlicesFeatureProvider()
+                .getSliceDataConverter(mContext);
+        final List<SliceData> sliceData = converter.getSliceDataForSources(sources);
+        sliceData.addAll(converter.getAccessibilitySliceData());
+        return sliceData;
+    }
+
+    @VisibleForTesting
+    Map<String, Long> getSourceFingerprints() {
+        return FeatureFactory.getFactory(mContext)
+                .getSlicesFeatureProvider()
+                .getSliceDataConverter(mContext)
+                .getSourceFingerprints();
+    }
+
+    @VisibleForTesting
+    long getSharedFingerprint() {
+        return FeatureFactory.getFactory(mContext)
+                .getSlicesFeatureProvider()
+                .getSliceDataConverter(mContext)
+                .getSharedFingerprint();
+    }
+
+    /**
+     * Re-indexes the sources whose fingerprint differs from {@param indexedFingerprints}, and
+     * removes the rows of sources which no longer exist. Accessibility services are not tied to a
+     * source and are always re-indexed.
+     */
+    @VisibleForTesting
+    void updateSliceData(SQLiteDatabase database, Map<String, Long> fingerprints,
+            Map<String, Long> indexedFingerprints) {
+        final Set<String> changedSources = new HashSet<>();
+        for (Map.Entry<String, Long> entry : fingerprints.entrySet()) {
+            if (!entry.getValue().equals(indexedFingerprints.get(entry.getKey()))) {
+                changedSources.add(entry.getKey());
+            }
+        }
+
+        final Set<String> staleSources = new HashSet<>(changedSources);
+        for (String source : indexedFingerprints.keySet()) {
+            if (!fingerprints.containsKey(source)) {
+                staleSources.add(source);
+            }
+        }
+
+        Log.d(TAG, "Re-indexing " + changedSources.size() + " of " + fingerprints.size()
+                + " slice sources, removing " + (staleSources.size() - changedSources.size()));
 
-        for (SliceData dataRow : indexData) {
+        deleteSliceData(database, staleSources);
+        insertSliceData(database, getSliceData(changedSources));
+    }
+
+    /**
+     * Deletes the rows of every source in {@param sources} as well as all accessibility service
+     * rows in a single statement.
+     */
+    private void deleteSliceData(SQLiteDatabase database, Set<String> sources) {
+        final List<String> args = new ArrayList<>(sources.size() + 1);
+        args.add(AccessibilitySlicePreferenceController.class.getName());
+        args.addAll(sources);
+
+        final StringBuilder whereClause = new StringBuilder(IndexColumns.CONTROLLER)
+                .append(" = ?");
+        if (!sources.isEmpty()) {
+            whereClause.append(" OR ")
+                    .append(IndexColumns.FRAGMENT)
+                    .append(" IN (")
+                    .append(TextUtils.join(",", Collections.nCopies(sources.size(), "?")))
+                    .append(")");
+        }
+
+        database.delete(Tables.TABLE_SLICES_INDEX, whereClause.toString(),
+                args.toArray(new String[0]));
+    }
+
+    private Map<String, Long> getIndexedSourceFingerprints(SQLiteDatabase database) {
+        final Map<String, Long> fingerprints = new HashMap<>();
+        final String[] columns = new String[]{SourceColumns.SOURCE, SourceColumns.FINGERPRINT};
+
+        try (final Cursor cursor = database.query(Tables.TABLE_SLICES_INDEX_SOURCES, columns,
+                null /* selection */, null /* selectionArgs */, null /* groupBy */,
+                null /* having */, null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                fingerprints.put(cursor.getString(0 /* source */),
+                        cursor.getLong(1 /* fingerprint */));
+            }
+        }
+
+        return fingerprints;
+    }
+
+    private void insertSourceFingerprints(SQLiteDatabase database,
+            Map<String, Long> fingerprints, long sharedFingerprint) {
+        database.delete(Tables.TABLE_SLICES_INDEX_SOURCES, null /* whereClause */,
+                null /* whereArgs */);
+
+        ContentValues values = new ContentValues();
+        values.put(SourceColumns.SOURCE, SHARED_SOURCE);
+        values.put(SourceColumns.FINGERPRINT, sharedFingerprint);
+        database.replaceOrThrow(Tables.TABLE_SLICES_INDEX_SOURCES, null /* nullColumnHack */,
+                values);
+
+        for (Map.Entry<String, Long> entry : fingerprints.entrySet()) {
             values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            values.put(IndexColumns.SCREENTITLE, dataRow.getScreenTitle().toString());
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.PLATFORM_SLICE, dataRow.isPlatformDefined());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+            values.put(SourceColumns.SOURCE, entry.getKey());
+            values.put(SourceColumns.FINGERPRINT, entry.getValue());
+
+            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX_SOURCES,
+                    null /* nullColumnHack */, values);
+        }
+    }
+
+    /**
+     * Inserts {@param indexData} with a single compiled statement which is re-bound for every
+     * row, avoiding the per-row SQL building and {@link ContentValues} allocation of
+     * {@link SQLiteDatabase#replaceOrThrow}.
+     */
+    @VisibleForTesting
+    void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
+        if (indexData.isEmpty()) {
+            return;
+        }
+
+        try (final SQLiteStatement statement = database.compileStatement(INSERT_SLICE_SQL)) {
+            for (SliceData dataRow : indexData) {
+                statement.clearBindings();
+                bindStringOrNull(statement, 1, dataRow.getKey());
+                bindStringOrNull(statement, 2, dataRow.getTitle());
+                bindStringOrNull(statement, 3, dataRow.getSummary());
+                bindStringOrNull(statement, 4, dataRow.getScreenTitle().toString());
+                bindStringOrNull(statement, 5, dataRow.getKeywords());
+                statement.bindLong(6, dataRow.getIconResource());
+                bindStringOrNull(statement, 7, dataRow.getFragmentClassName());
+                bindStringOrNull(statement, 8, dataRow.getPreferenceController());
+                statement.bindLong(9, dataRow.isPlatformDefined() ? 1 : 0);
+                statement.bindLong(10, dataRow.getSliceType());
+                bindStringOrNull(statement, 11, dataRow.getUnavailableSliceSubtitle());
+                statement.executeInsert();
+            }
+        }
+    }
+
+    private static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
         }
     }
-}
\ No newline at end of file
+}
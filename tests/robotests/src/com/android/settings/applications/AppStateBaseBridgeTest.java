@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.ApplicationInfo;
+import android.os.Looper;
+
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppStateBaseBridgeTest {
+
+    @Mock
+    private ApplicationsState mState;
+    @Mock
+    private ApplicationsState.Session mSession;
+
+    private ArrayList<AppEntry> mApps;
+    private TestBridge mBridge;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(mState.newSession(any())).thenReturn(mSession);
+        when(mState.getBackgroundLooper()).thenReturn(Looper.getMainLooper());
+        mApps = new ArrayList<>();
+        for (int i = 0; i < AppStateBaseBridge.MAX_APPS_TO_UPDATE + 1; i++) {
+            mApps.add(createAppEntry("com.test.app" + i));
+        }
+        when(mSession.getAllApps()).thenReturn(mApps);
+        mBridge = new TestBridge(mState);
+
+        mBridge.resume();
+        ShadowLooper.idleMainLooper();
+        mBridge.mLoadAllCount = 0;
+    }
+
+    @Test
+    public void onPackageListChanged_oneAppChanged_shouldOnlyUpdateThatApp() {
+        final AppEntry changedApp = mApps.get(0);
+        changedApp.info = createApplicationInfo(changedApp.info.packageName);
+        final AppEntry newApp = createAppEntry("com.test.new");
+        mApps.add(newApp);
+
+        mBridge.onPackageListChanged();
+        ShadowLooper.idleMainLooper(AppStateBaseBridge.LOAD_CHANGED_DELAY_MS,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(mBridge.mLoadAllCount).isEqualTo(0);
+        assertThat(mBridge.mUpdatedApps).containsExactly(changedApp, newApp);
+    }
+
+    @Test
+    public void onPackageListChanged_nothingChanged_shouldNotLoad() {
+        mBridge.onPackageListChanged();
+        ShadowLooper.idleMainLooper(AppStateBaseBridge.LOAD_CHANGED_DELAY_MS,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(mBridge.mLoadAllCount).isEqualTo(0);
+        assertThat(mBridge.mUpdatedApps).isEmpty();
+    }
+
+    @Test
+    public void onPackageListChanged_manyAppsChanged_shouldLoadAllOnce() {
+        for (AppEntry app : mApps) {
+            app.info = createApplicationInfo(app.info.packageName);
+        }
+
+        mBridge.onPackageListChanged();
+        mBridge.onLoadEntriesCompleted();
+        mBridge.onPackageListChanged();
+        ShadowLooper.idleMainLooper(AppStateBaseBridge.LOAD_CHANGED_DELAY_MS,
+                TimeUnit.MILLISECONDS);
+
+        assertThat(mBridge.mLoadAllCount).isEqualTo(1);
+        assertThat(mBridge.mUpdatedApps).isEmpty();
+    }
+
+    private static AppEntry createAppEntry(String packageName) {
+        final AppEntry entry = mock(AppEntry.class);
+        entry.info = createApplicationInfo(packageName);
+        return entry;
+    }
+
+    private static ApplicationInfo createApplicationInfo(String packageName) {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        return info;
+    }
+
+    private static class TestBridge extends AppStateBaseBridge {
+        private int mLoadAllCount;
+        private final List<AppEntry> mUpdatedApps = new ArrayList<>();
+
+        private TestBridge(ApplicationsState appState) {
+            super(appState, mock(Callback.class));
+        }
+
+        @Override
+        protected void loadAllExtraInfo() {
+            mLoadAllCount++;
+        }
+
+        @Override
+        protected void updateExtraInfo(AppEntry app, String pkg, int uid) {
+            mUpdatedApps.add(app);
+        }
+    }
+}
@@ -39,6 +39,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -64,6 +65,7 @@ import com.android.settingslib.applications.ApplicationsState.AppEntry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
@@ -102,6 +104,7 @@ public class AppStateNotificationBridgeTest {
         // most tests assume no work profile
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
         mContext = RuntimeEnvironment.application.getApplicationContext();
+        AppStateNotificationBridge.clearUsageCache();
 
         mBridge = new AppStateNotificationBridge(mContext, mState,
                 mock(AppStateBaseBridge.Callback.class), mUsageStats, mUserManager, mBackend);
@@ -202,6 +205,70 @@ public class AppStateNotificationBridgeTest {
         assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).lastSent).isEqualTo(1);
     }
 
+    @Test
+    public void testGetAggregatedUsageEvents_secondAggregation_onlyQueriesNewEvents()
+            throws Exception {
+        final long now = System.currentTimeMillis();
+        List<Event> events = new ArrayList<>();
+        Event good = new Event();
+        good.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        good.mPackage = PKG1;
+        good.mTimeStamp = now - DAY_IN_MILLIS;
+        events.add(good);
+        List<Event> newEvents = new ArrayList<>();
+        Event good1 = new Event();
+        good1.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        good1.mPackage = PKG1;
+        good1.mTimeStamp = now;
+        newEvents.add(good1);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(events))
+                .thenReturn(getUsageEvents(newEvents));
+
+        mBridge.getAggregatedUsageEvents();
+        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents();
+
+        final ArgumentCaptor<Long> beginTime = ArgumentCaptor.forClass(Long.class);
+        final ArgumentCaptor<Long> endTime = ArgumentCaptor.forClass(Long.class);
+        verify(mUsageStats, times(2)).queryEventsForUser(beginTime.capture(), endTime.capture(),
+                anyInt(), anyString());
+        assertThat(beginTime.getAllValues().get(1)).isEqualTo(endTime.getAllValues().get(0));
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).sentCount).isEqualTo(2);
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1)).lastSent).isEqualTo(now);
+    }
+
+    @Test
+    public void testGetAggregatedUsageEvents_secondAggregation_dropsOldEvents() throws Exception {
+        final long now = System.currentTimeMillis();
+        List<Event> events = new ArrayList<>();
+        Event old = new Event();
+        old.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        old.mPackage = PKG1;
+        old.mTimeStamp = now - 8 * DAY_IN_MILLIS;
+        events.add(old);
+        Event recent = new Event();
+        recent.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        recent.mPackage = PKG2;
+        recent.mTimeStamp = now - 8 * DAY_IN_MILLIS;
+        events.add(recent);
+        Event recent1 = new Event();
+        recent1.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        recent1.mPackage = PKG2;
+        recent1.mTimeStamp = now - DAY_IN_MILLIS;
+        events.add(recent1);
+        when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
+                .thenReturn(getUsageEvents(events))
+                .thenReturn(mock(UsageEvents.class));
+
+        mBridge.getAggregatedUsageEvents();
+        Map<String, NotificationsSentState> map = mBridge.getAggregatedUsageEvents();
+
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG1))).isNull();
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).sentCount).isEqualTo(1);
+        assertThat(map.get(AppStateNotificationBridge.getKey(0, PKG2)).lastSent)
+                .isEqualTo(now - DAY_IN_MILLIS);
+    }
+
     @Test
     public void testLoadAllExtraInfo_noEvents() throws RemoteException {
         when(mUsageStats.queryEventsForUser(anyLong(), anyLong(), anyInt(), anyString()))
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.android.settings.applications.RunningState.CONTENTS_UPDATE_DELAY;
+import static com.android.settings.applications.RunningState.MAX_CONTENTS_UPDATE_DELAY;
+import static com.android.settings.applications.RunningState.UNCHANGED_UPDATES_BEFORE_BACKOFF;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    @Test
+    public void getContentsUpdateDelay_recentlyChanged_shouldPollAtDefaultDelay() {
+        assertThat(RunningState.getContentsUpdateDelay(0)).isEqualTo(CONTENTS_UPDATE_DELAY);
+        assertThat(RunningState.getContentsUpdateDelay(UNCHANGED_UPDATES_BEFORE_BACKOFF - 1))
+                .isEqualTo(CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void getContentsUpdateDelay_unchanged_shouldDoubleDelay() {
+        assertThat(RunningState.getContentsUpdateDelay(UNCHANGED_UPDATES_BEFORE_BACKOFF))
+                .isEqualTo(2 * CONTENTS_UPDATE_DELAY);
+        assertThat(RunningState.getContentsUpdateDelay(UNCHANGED_UPDATES_BEFORE_BACKOFF + 1))
+                .isEqualTo(4 * CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void getContentsUpdateDelay_unchangedForLong_shouldNotExceedMaxDelay() {
+        assertThat(RunningState.getContentsUpdateDelay(Integer.MAX_VALUE))
+                .isEqualTo(MAX_CONTENTS_UPDATE_DELAY);
+    }
+}
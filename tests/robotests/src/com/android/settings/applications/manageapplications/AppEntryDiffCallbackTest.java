@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.content.pm.ApplicationInfo;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppEntryDiffCallbackTest {
+
+    private static final int SORT_MODE = 0;
+
+    private AppEntry mEntry;
+    private AppEntryDiffCallback.Row[] mOldRows;
+
+    @Before
+    public void setUp() {
+        mEntry = createEntry("com.test.app", 10001 /* uid */);
+        mEntry.sizeStr = "1.00 MB";
+        mOldRows = AppEntryDiffCallback.snapshot(Collections.singletonList(mEntry), SORT_MODE);
+    }
+
+    @Test
+    public void areItemsTheSame_samePackageAndUid_shouldReturnTrue() {
+        final AppEntry newEntry = createEntry("com.test.app", 10001 /* uid */);
+
+        assertThat(createCallback(newEntry).areItemsTheSame(0, 0)).isTrue();
+    }
+
+    @Test
+    public void areItemsTheSame_otherUid_shouldReturnFalse() {
+        final AppEntry newEntry = createEntry("com.test.app", 1010001 /* uid */);
+
+        assertThat(createCallback(newEntry).areItemsTheSame(0, 0)).isFalse();
+    }
+
+    @Test
+    public void getChangePayload_onlySizeChanged_shouldReturnSummaryPayload() {
+        mEntry.sizeStr = "2.00 MB";
+        final AppEntryDiffCallback callback = createCallback(mEntry);
+
+        assertThat(callback.areContentsTheSame(0, 0)).isFalse();
+        assertThat(callback.getChangePayload(0, 0))
+                .isEqualTo(AppEntryDiffCallback.PAYLOAD_SUMMARY);
+    }
+
+    @Test
+    public void getChangePayload_labelChanged_shouldRebindWholeRow() {
+        mEntry.label = "Renamed";
+        final AppEntryDiffCallback callback = createCallback(mEntry);
+
+        assertThat(callback.areContentsTheSame(0, 0)).isFalse();
+        assertThat(callback.getChangePayload(0, 0)).isNull();
+    }
+
+    @Test
+    public void areContentsTheSame_nothingChanged_shouldReturnTrue() {
+        assertThat(createCallback(mEntry).areContentsTheSame(0, 0)).isTrue();
+    }
+
+    private AppEntryDiffCallback createCallback(AppEntry newEntry) {
+        return new AppEntryDiffCallback(mOldRows,
+                AppEntryDiffCallback.snapshot(Collections.singletonList(newEntry), SORT_MODE));
+    }
+
+    private static AppEntry createEntry(String packageName, int uid) {
+        final AppEntry entry = mock(AppEntry.class);
+        entry.label = "App";
+        entry.info = new ApplicationInfo();
+        entry.info.packageName = packageName;
+        entry.info.uid = uid;
+        return entry;
+    }
+}
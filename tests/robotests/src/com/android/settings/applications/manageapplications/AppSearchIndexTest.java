@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.content.pm.ApplicationInfo;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSearchIndexTest {
+
+    @Test
+    public void search_shouldIgnoreCaseAndAccents() {
+        final AppSearchIndex index = new AppSearchIndex(
+                getAppList(new String[] {"Café", "CAFETERIA", "Bakery"}));
+
+        assertThat(getLabels(index.search("cafe"))).containsExactly("Café", "CAFETERIA")
+                .inOrder();
+        assertThat(getLabels(index.search("CAFÉ"))).containsExactly("Café", "CAFETERIA")
+                .inOrder();
+    }
+
+    @Test
+    public void search_shouldMatchInsideLabels() {
+        final AppSearchIndex index = new AppSearchIndex(
+                getAppList(new String[] {"Apricot", "Banana", "Cantaloupe", "Fig", "Mango"}));
+
+        assertThat(getLabels(index.search("an"))).containsExactly("Banana", "Cantaloupe", "Mango")
+                .inOrder();
+    }
+
+    @Test
+    public void search_packageNamePrefix_shouldMatch() {
+        final AppSearchIndex index = new AppSearchIndex(
+                getAppList(new String[] {"Maps", "Calendar"}));
+
+        assertThat(getLabels(index.search("com.test.m"))).containsExactly("Maps");
+        // Package names are not matched without a '.', nor inside the name.
+        assertThat(getLabels(index.search("com"))).isEmpty();
+        assertThat(getLabels(index.search("test.maps"))).isEmpty();
+    }
+
+    @Test
+    public void search_extendedQuery_shouldMatchSameAsFullSearch() {
+        final List<AppEntry> apps =
+                getAppList(new String[] {"Banana", "Bandcamp", "Bank", "Cantaloupe"});
+        final AppSearchIndex incremental = new AppSearchIndex(apps);
+
+        incremental.search("b");
+        incremental.search("ba");
+        final List<AppEntry> narrowed = incremental.search("ban");
+
+        assertThat(narrowed).containsExactlyElementsIn(new AppSearchIndex(apps).search("ban"))
+                .inOrder();
+        // Going back to a shorter query searches every entry again.
+        assertThat(getLabels(incremental.search("an")))
+                .containsExactly("Banana", "Bandcamp", "Bank", "Cantaloupe").inOrder();
+    }
+
+    @Test
+    public void search_typedQuery_shouldMatchCaseInsensitiveLabelScan() {
+        final List<AppEntry> apps = getAppList(new String[] {"Camera", "Photo Camera", "Calendar",
+                "Cam Scanner", "Music", "CAMERA Roll", "Maps"});
+        final AppSearchIndex index = new AppSearchIndex(apps);
+        final String query = "camera";
+
+        for (int i = 1; i <= query.length(); i++) {
+            final String typed = query.substring(0, i);
+            final List<AppEntry> expected = new ArrayList<>();
+            for (AppEntry entry : apps) {
+                if (entry.label.toLowerCase().contains(typed)) {
+                    expected.add(entry);
+                }
+            }
+            assertThat(index.search(typed)).containsExactlyElementsIn(expected).inOrder();
+        }
+    }
+
+    @Test
+    public void normalize_shouldFoldCaseAndStripAccents() {
+        final AppSearchIndex index = new AppSearchIndex(new ArrayList<>());
+
+        assertThat(index.normalize("ÉCOLE")).isEqualTo("ecole");
+        assertThat(index.normalize(null)).isEmpty();
+    }
+
+    private static List<AppEntry> getAppList(String[] labels) {
+        final List<AppEntry> apps = new ArrayList<>();
+        for (String label : labels) {
+            final AppEntry entry = mock(AppEntry.class);
+            entry.label = label;
+            entry.info = new ApplicationInfo();
+            entry.info.packageName = "com.test." + label.toLowerCase();
+            apps.add(entry);
+        }
+        return apps;
+    }
+
+    private static List<String> getLabels(List<AppEntry> entries) {
+        final List<String> labels = new ArrayList<>();
+        for (AppEntry entry : entries) {
+            labels.add(entry.label);
+        }
+        return labels;
+    }
+}
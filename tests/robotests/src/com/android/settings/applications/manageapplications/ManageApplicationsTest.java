@@ -34,6 +34,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,6 +71,7 @@ import org.robolectric.fakes.RoboMenuItem;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 @RunWith(RobolectricTestRunner.class)
 public class ManageApplicationsTest {
@@ -453,6 +455,72 @@ public class ManageApplicationsTest {
         assertThat(adapter.getAppEntry(2).label).isEqualTo("Mango");
     }
 
+    @Test
+    public void applicationsAdapter_filterSearch_shouldOnlyNotifyChangedRows() {
+        final ManageApplications.ApplicationsAdapter adapter =
+                spy(new ManageApplications.ApplicationsAdapter(
+                        mState, mFragment, mock(AppFilterItem.class), Bundle.EMPTY));
+        final String[] appNames = {"Apricot", "Banana", "Cantaloupe", "Fig", "Mango"};
+        final ArrayList<ApplicationsState.AppEntry> appList = getTestAppList(appNames);
+        for (ApplicationsState.AppEntry appEntry : appList) {
+            appEntry.info = new ApplicationInfo();
+            appEntry.info.packageName = "com.test." + appEntry.label;
+        }
+        ReflectionHelpers.setField(adapter, "mOriginalEntries", appList);
+        adapter.filterSearch("");
+
+        adapter.filterSearch("an");
+
+        verify(adapter).notifyItemRangeRemoved(3 /* positionStart */, 1 /* itemCount */);
+        verify(adapter).notifyItemRangeRemoved(0 /* positionStart */, 1 /* itemCount */);
+        // Only for the first list.
+        verify(adapter).notifyDataSetChanged();
+    }
+
+    @Test
+    public void applicationsAdapter_filterSearch_extraViewShown_shouldNotifyDataSetChanged() {
+        final ManageApplications.ApplicationsAdapter adapter =
+                spy(new ManageApplications.ApplicationsAdapter(
+                        mState, mFragment, mock(AppFilterItem.class), Bundle.EMPTY));
+        final String[] appNames = {"Apricot", "Banana", "Cantaloupe", "Fig", "Mango"};
+        final ArrayList<ApplicationsState.AppEntry> appList = getTestAppList(appNames);
+        for (ApplicationsState.AppEntry appEntry : appList) {
+            appEntry.info = new ApplicationInfo();
+            appEntry.info.packageName = "com.test." + appEntry.label;
+        }
+        ReflectionHelpers.setField(adapter, "mOriginalEntries", appList);
+        adapter.filterSearch("");
+        final FileViewHolderController extraViewController = mock(FileViewHolderController.class);
+        when(extraViewController.shouldShow()).thenReturn(true);
+        ReflectionHelpers.setField(adapter, "mExtraViewController", extraViewController);
+
+        adapter.filterSearch("an");
+
+        verify(adapter, times(2)).notifyDataSetChanged();
+        verify(adapter, never()).notifyItemRangeRemoved(anyInt(), anyInt());
+    }
+
+    @Test
+    public void applicationsAdapter_onBindViewHolder_summaryPayload_shouldOnlyUpdateSummary() {
+        mFragment.mListType = LIST_TYPE_MAIN;
+        final ApplicationViewHolder holder = mock(ApplicationViewHolder.class);
+        ReflectionHelpers.setField(holder, "itemView", mock(View.class));
+        final ManageApplications.ApplicationsAdapter adapter =
+                new ManageApplications.ApplicationsAdapter(
+                        mState, mFragment, mock(AppFilterItem.class), mock(Bundle.class));
+        final ArrayList<ApplicationsState.AppEntry> appList = new ArrayList<>();
+        final ApplicationsState.AppEntry appEntry = mock(ApplicationsState.AppEntry.class);
+        appEntry.info = mock(ApplicationInfo.class);
+        appList.add(appEntry);
+        ReflectionHelpers.setField(adapter, "mEntries", appList);
+
+        adapter.onBindViewHolder(holder, 0,
+                Collections.singletonList(AppEntryDiffCallback.PAYLOAD_SUMMARY));
+
+        verify(holder).updateSizeText(eq(appEntry), any(), anyInt());
+        verify(holder, never()).setTitle(any());
+    }
+
     @Test
     public void sortOrderSavedOnRebuild() {
         when(mUserManager.getProfileIdsWithDisabled(anyInt())).thenReturn(new int[]{});
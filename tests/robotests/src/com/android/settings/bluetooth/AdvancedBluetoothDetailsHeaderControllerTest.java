@@ -18,6 +18,7 @@ package com.android.settings.bluetooth;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -196,6 +197,37 @@ public class AdvancedBluetoothDetailsHeaderControllerTest {
         verify(mImageView).setImageBitmap(mBitmap);
     }
 
+    @Test
+    public void updateIcon_notInCacheBeforeIconsLoaded_shouldNotSetImageBitmap() {
+        mController.updateIcon(mImageView, ICON_URI);
+
+        verify(mImageView, never()).setImageBitmap(any());
+    }
+
+    @Test
+    public void doBlockerWork_notAvailable_shouldNotLoadIcons() {
+        when(mBluetoothDevice.getMetadata(BluetoothDevice.METADATA_IS_UNTETHERED_HEADSET))
+                .thenReturn("false".getBytes());
+        when(mBluetoothDevice.getMetadata(BluetoothDevice.METADATA_MAIN_ICON))
+                .thenReturn(ICON_URI.getBytes());
+
+        mController.doBlockerWork();
+
+        assertThat(mController.mIconsLoaded).isTrue();
+        assertThat(mController.mIconCache).isEmpty();
+    }
+
+    @Test
+    public void showPlaceholder_shouldHideIcons() {
+        mController.showPlaceholder(mLayoutPreference);
+
+        for (int layoutId : new int[]{R.id.layout_left, R.id.layout_middle, R.id.layout_right}) {
+            final LinearLayout layout = mLayoutPreference.findViewById(layoutId);
+            assertThat(layout.findViewById(R.id.header_icon).getVisibility())
+                    .isEqualTo(View.INVISIBLE);
+        }
+    }
+
     @Test
     public void onStart_isAvailable_registerCallback() {
         DeviceConfig.setProperty(DeviceConfig.NAMESPACE_SETTINGS_UI,
@@ -64,6 +64,15 @@ public class TopLevelConnectedDevicesPreferenceControllerTest {
                 .isEqualTo(mContext.getText(R.string.settings_label_launcher));
     }
 
+    @Test
+    @Config(shadows = ShadowAdvancedConnectedDeviceController.class)
+    public void getSummary_afterComputeState_shouldReturnComputedSummary() {
+        mController.computeState();
+
+        assertThat(mController.getSummary())
+                .isEqualTo(mContext.getText(R.string.settings_label_launcher));
+    }
+
     @Implements(AdvancedConnectedDeviceController.class)
     private static class ShadowAdvancedConnectedDeviceController {
 
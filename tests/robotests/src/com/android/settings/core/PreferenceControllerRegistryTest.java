@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.display.TopLevelDisplayPreferenceController;
+import com.android.settings.fuelgauge.BatterySaverController;
+import com.android.settings.slices.FakePreferenceController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerRegistryTest {
+
+    private static final String KEY = "key";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        PreferenceControllerRegistry.clear();
+    }
+
+    @Test
+    public void createInstance_registeredFactory_usesFactory() {
+        final FakePreferenceController controller = new FakePreferenceController(mContext, KEY);
+        PreferenceControllerRegistry.registerFactory("registered.Controller",
+                (context, key) -> controller);
+
+        assertThat(PreferenceControllerRegistry.createInstance(mContext, "registered.Controller",
+                KEY)).isSameAs(controller);
+    }
+
+    @Test
+    public void createInstance_homepageController_usesDefaultFactory() {
+        final String controllerName = TopLevelDisplayPreferenceController.class.getName();
+        assertThat(PreferenceControllerRegistry.hasFactory(controllerName)).isTrue();
+
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, controllerName, KEY);
+
+        assertThat(controller).isInstanceOf(TopLevelDisplayPreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createInstance_defaultKeyFactoryWithoutKey_throws() {
+        PreferenceControllerRegistry.createInstance(mContext,
+                TopLevelDisplayPreferenceController.class.getName());
+    }
+
+    @Test
+    public void clear_keepsDefaultFactories() {
+        PreferenceControllerRegistry.clear();
+
+        assertThat(PreferenceControllerRegistry.hasFactory(
+                BatterySaverController.class.getName())).isTrue();
+    }
+
+    @Test
+    public void createInstance_unregistered_fallsBackToReflection() {
+        final BasePreferenceController controller = PreferenceControllerRegistry.createInstance(
+                mContext, FakePreferenceController.class.getName(), KEY);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createInstance_missingConstructor_throws() {
+        PreferenceControllerRegistry.createInstance(mContext,
+                FakePreferenceController.class.getName());
+    }
+
+    @Test
+    public void createInstance_missingConstructorTwice_throwsBothTimes() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                PreferenceControllerRegistry.createInstance(mContext, "not.a.Controller");
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            throw new AssertionError("Expected IllegalStateException");
+        }
+    }
+}
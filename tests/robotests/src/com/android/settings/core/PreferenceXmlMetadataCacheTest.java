@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SEARCHABLE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.android.settings.R;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceXmlMetadataCacheTest {
+
+    private static final String TOKEN = "token";
+    private static final int FLAGS = MetadataFlag.FLAG_NEED_KEY
+            | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+            | MetadataFlag.FLAG_NEED_PREF_ICON
+            | MetadataFlag.FLAG_NEED_SEARCHABLE;
+
+    private Context mContext;
+    private File mFile;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mFile = new File(mContext.getCacheDir(), PreferenceXmlMetadataCache.CACHE_FILE_NAME);
+        mFile.delete();
+    }
+
+    @Test
+    public void get_notCached_returnsNull() {
+        final PreferenceXmlMetadataCache cache = new PreferenceXmlMetadataCache(mFile, TOKEN);
+
+        assertThat(cache.get(R.xml.display_settings, FLAGS)).isNull();
+    }
+
+    @Test
+    public void write_reloadedCache_returnsSameMetadata() throws Exception {
+        final List<Bundle> metadata = PreferenceXmlParserUtils.parseMetadata(mContext,
+                R.xml.display_settings, FLAGS);
+        final PreferenceXmlMetadataCache cache = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        cache.put(R.xml.display_settings, FLAGS, metadata);
+        cache.write();
+
+        final List<Bundle> cached = new PreferenceXmlMetadataCache(mFile, TOKEN)
+                .get(R.xml.display_settings, FLAGS);
+
+        assertThat(cached).hasSize(metadata.size());
+        for (int i = 0; i < metadata.size(); i++) {
+            final Bundle expected = metadata.get(i);
+            final Bundle actual = cached.get(i);
+            assertThat(actual.getString(METADATA_KEY)).isEqualTo(expected.getString(METADATA_KEY));
+            assertThat(actual.getString(METADATA_CONTROLLER))
+                    .isEqualTo(expected.getString(METADATA_CONTROLLER));
+            assertThat(actual.getInt(METADATA_ICON)).isEqualTo(expected.getInt(METADATA_ICON));
+            assertThat(actual.getBoolean(METADATA_SEARCHABLE))
+                    .isEqualTo(expected.getBoolean(METADATA_SEARCHABLE));
+        }
+    }
+
+    @Test
+    public void load_differentToken_ignoresFile() {
+        final Bundle bundle = new Bundle();
+        bundle.putString(METADATA_KEY, "key");
+        final PreferenceXmlMetadataCache cache = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        cache.put(R.xml.display_settings, FLAGS, Collections.singletonList(bundle));
+        cache.write();
+
+        assertThat(new PreferenceXmlMetadataCache(mFile, "otherToken")
+                .get(R.xml.display_settings, FLAGS)).isNull();
+    }
+
+    @Test
+    public void get_differentFlags_returnsNull() {
+        final Bundle bundle = new Bundle();
+        bundle.putString(METADATA_KEY, "key");
+        final PreferenceXmlMetadataCache cache = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        cache.put(R.xml.display_settings, FLAGS, Collections.singletonList(bundle));
+        cache.write();
+
+        assertThat(cache.get(R.xml.display_settings, MetadataFlag.FLAG_NEED_KEY)).isNull();
+    }
+
+    @Test
+    public void write_twice_keepsEntriesOfBothWrites() {
+        final Bundle bundle = new Bundle();
+        bundle.putString(METADATA_KEY, "key");
+        final PreferenceXmlMetadataCache cache = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        cache.put(R.xml.display_settings, FLAGS, Collections.singletonList(bundle));
+        cache.write();
+        cache.put(R.xml.sound_settings, FLAGS, Collections.singletonList(bundle));
+        cache.write();
+
+        final PreferenceXmlMetadataCache reloaded = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        assertThat(reloaded.get(R.xml.display_settings, FLAGS)).hasSize(1);
+        assertThat(reloaded.get(R.xml.sound_settings, FLAGS)).hasSize(1);
+    }
+
+    @Test
+    public void write_truncatedFile_dropsCorruptEntryAndKeepsOthers() throws Exception {
+        final Bundle bundle = new Bundle();
+        bundle.putString(METADATA_KEY, "key");
+        final PreferenceXmlMetadataCache cache = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        cache.put(R.xml.display_settings, FLAGS, Collections.singletonList(bundle));
+        cache.put(R.xml.sound_settings, FLAGS, Collections.singletonList(bundle));
+        cache.write();
+        // Cut the entry written last.
+        try (RandomAccessFile file = new RandomAccessFile(mFile, "rw")) {
+            file.setLength(file.length() - 4);
+        }
+
+        final PreferenceXmlMetadataCache truncated = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        truncated.put(R.xml.display_settings, MetadataFlag.FLAG_NEED_KEY,
+                Collections.singletonList(bundle));
+        truncated.write();
+
+        final PreferenceXmlMetadataCache reloaded = new PreferenceXmlMetadataCache(mFile, TOKEN);
+        assertThat(reloaded.get(R.xml.display_settings, MetadataFlag.FLAG_NEED_KEY)).hasSize(1);
+        final int intactCount = (reloaded.get(R.xml.display_settings, FLAGS) != null ? 1 : 0)
+                + (reloaded.get(R.xml.sound_settings, FLAGS) != null ? 1 : 0);
+        assertThat(intactCount).isEqualTo(1);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class LatencyHistogramTest {
+
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {1, 4};
+
+    @Test
+    public void getBucket_boundaries() {
+        assertThat(LatencyHistogram.getBucket(BUCKET_UPPER_BOUNDS_MILLIS, 0)).isEqualTo(0);
+        assertThat(LatencyHistogram.getBucket(BUCKET_UPPER_BOUNDS_MILLIS, 1)).isEqualTo(1);
+        assertThat(LatencyHistogram.getBucket(BUCKET_UPPER_BOUNDS_MILLIS, 4)).isEqualTo(2);
+        assertThat(LatencyHistogram.getBucket(BUCKET_UPPER_BOUNDS_MILLIS, 10_000)).isEqualTo(2);
+    }
+
+    @Test
+    public void record_shouldCountBucketsAndTotals() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram(BUCKET_UPPER_BOUNDS_MILLIS);
+
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertThat(histogram.getCount(0)).isEqualTo(1);
+        assertThat(histogram.getCount(1)).isEqualTo(1);
+        assertThat(histogram.getCount(2)).isEqualTo(1);
+        final JSONObject dump = histogram.dump();
+        assertThat(dump.getJSONArray("buckets").length()).isEqualTo(3);
+        assertThat(dump.getInt("count")).isEqualTo(3);
+        assertThat(dump.getLong("totalMicros")).isEqualTo(12_100);
+        assertThat(dump.getLong("maxMicros")).isEqualTo(10_000);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.CategoryKey.CATEGORY_HOMEPAGE;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_KEY_ORDER;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.util.ArrayMap;
+
+import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.drawer.Tile;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public class CategoryDiskCacheTest {
+
+    private static final String OLD_CATEGORY = "com.android.settings.category.wireless";
+
+    private Context mContext;
+    private File mFile;
+    private CategoryDiskCache mDiskCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mFile = new File(mContext.getCacheDir(), CategoryDiskCache.CACHE_FILE_NAME);
+        mFile.delete();
+        mDiskCache = new CategoryDiskCache(mContext, mFile);
+    }
+
+    @Test
+    public void read_noFile_shouldReturnNull() {
+        assertThat(mDiskCache.read()).isNull();
+    }
+
+    @Test
+    public void read_afterWrite_shouldReturnWrittenCategories() {
+        final DashboardCategory homepage = createCategory(CATEGORY_HOMEPAGE, 10);
+        final DashboardCategory other = createCategory(OLD_CATEGORY, 20);
+        final List<DashboardCategory> categories = new ArrayList<>();
+        categories.add(homepage);
+        final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+        categoryByKeyMap.put(CATEGORY_HOMEPAGE, homepage);
+        categoryByKeyMap.put(OLD_CATEGORY, other);
+
+        mDiskCache.write(new CategoryManager.Snapshot(categories, categoryByKeyMap));
+        final CategoryManager.Snapshot snapshot = new CategoryDiskCache(mContext, mFile).read();
+
+        assertThat(snapshot.mCategories).hasSize(1);
+        assertThat(snapshot.mCategories.get(0).key).isEqualTo(CATEGORY_HOMEPAGE);
+        assertThat(snapshot.mCategoryByKeyMap.keySet())
+                .containsExactly(CATEGORY_HOMEPAGE, OLD_CATEGORY);
+        assertThat(CategoryManager.getCategoriesSignature(snapshot.mCategories))
+                .isEqualTo(CategoryManager.getCategoriesSignature(categories));
+    }
+
+    @Test
+    public void read_corruptFile_shouldReturnNull() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(new byte[] {1, 2, 3});
+        }
+
+        assertThat(mDiskCache.read()).isNull();
+    }
+
+    private DashboardCategory createCategory(String key, int order) {
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = mContext.getPackageName();
+        activityInfo.name = "class" + order;
+        activityInfo.metaData = new Bundle();
+        activityInfo.metaData.putInt(META_DATA_KEY_ORDER, order);
+        activityInfo.applicationInfo = new ApplicationInfo();
+        final DashboardCategory category = new DashboardCategory(key);
+        category.addTile(new Tile(activityInfo, key));
+        return category;
+    }
+}
@@ -37,7 +37,10 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
@@ -393,4 +396,69 @@ public class CategoryManagerTest {
 
         assertThat(category.getTilesCount()).isEqualTo(1);
     }
+
+    @Test
+    public void evictTilesForPackages_shouldOnlyRemoveTilesOfChangedPackages() {
+        mTileByComponentCache.put(new Pair<>("pkg1", "class1"),
+                new Tile(mActivityInfo, CategoryKey.CATEGORY_HOMEPAGE));
+        mTileByComponentCache.put(new Pair<>("pkg2", "class2"),
+                new Tile(mActivityInfo, CategoryKey.CATEGORY_HOMEPAGE));
+
+        CategoryManager.evictTilesForPackages(mTileByComponentCache,
+                Collections.singleton("pkg1"));
+
+        assertThat(mTileByComponentCache.keySet()).containsExactly(new Pair<>("pkg2", "class2"));
+    }
+
+    @Test
+    public void getCategoriesSignature_sameTiles_shouldBeEqual() {
+        final List<DashboardCategory> categories1 = new ArrayList<>();
+        categories1.add(createCategoryWithTileOrder(10));
+        final List<DashboardCategory> categories2 = new ArrayList<>();
+        categories2.add(createCategoryWithTileOrder(10));
+
+        assertThat(CategoryManager.getCategoriesSignature(categories1))
+                .isEqualTo(CategoryManager.getCategoriesSignature(categories2));
+    }
+
+    @Test
+    public void getCategoriesSignature_changedTileMetaData_shouldDiffer() {
+        final List<DashboardCategory> categories1 = new ArrayList<>();
+        categories1.add(createCategoryWithTileOrder(10));
+        final List<DashboardCategory> categories2 = new ArrayList<>();
+        categories2.add(createCategoryWithTileOrder(20));
+
+        assertThat(CategoryManager.getCategoriesSignature(categories1))
+                .isNotEqualTo(CategoryManager.getCategoriesSignature(categories2));
+    }
+
+    @Test
+    public void updateCategoryFromBlacklist_shouldNotModifyPublishedCategories() {
+        final DashboardCategory category = createCategoryWithTileOrder(10);
+        final List<DashboardCategory> categories = new ArrayList<>();
+        categories.add(category);
+        final CategoryManager categoryManager = new CategoryManager(mContext);
+        categoryManager.setCategories(categories);
+        final List<DashboardCategory> published = categoryManager.getCategories(mContext);
+
+        categoryManager.updateCategoryFromBlacklist(
+                Collections.singleton(category.getTile(0).getIntent().getComponent()));
+
+        assertThat(published.get(0).getTilesCount()).isEqualTo(1);
+        assertThat(categoryManager.getCategories(mContext).get(0).getTilesCount()).isEqualTo(0);
+        assertThat(categoryManager.getTilesByCategory(mContext, CATEGORY_HOMEPAGE)
+                .getTilesCount()).isEqualTo(0);
+    }
+
+    private DashboardCategory createCategoryWithTileOrder(int order) {
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = "pkg";
+        activityInfo.name = "class";
+        activityInfo.metaData = new Bundle();
+        activityInfo.metaData.putInt(META_DATA_KEY_ORDER, order);
+        activityInfo.applicationInfo = new ApplicationInfo();
+        final DashboardCategory category = new DashboardCategory(CATEGORY_HOMEPAGE);
+        category.addTile(new Tile(activityInfo, CATEGORY_HOMEPAGE));
+        return category;
+    }
 }
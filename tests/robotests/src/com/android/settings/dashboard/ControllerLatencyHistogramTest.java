@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class ControllerLatencyHistogramTest {
+
+    private static final String FRAGMENT = "fragment";
+    private static final String CONTROLLER = "controller";
+
+    @Test
+    public void record_countsPerFragmentControllerAndMethod() throws Exception {
+        final ControllerLatencyHistogram histogram = new ControllerLatencyHistogram();
+
+        histogram.record(FRAGMENT, CONTROLLER, ControllerLatencyHistogram.METHOD_UPDATE_STATE,
+                TimeUnit.MICROSECONDS.toNanos(100));
+        histogram.record(FRAGMENT, CONTROLLER, ControllerLatencyHistogram.METHOD_UPDATE_STATE,
+                TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(FRAGMENT, CONTROLLER, ControllerLatencyHistogram.METHOD_IS_AVAILABLE,
+                TimeUnit.MICROSECONDS.toNanos(100));
+
+        assertThat(histogram.getCount(FRAGMENT, CONTROLLER,
+                ControllerLatencyHistogram.METHOD_UPDATE_STATE, 0)).isEqualTo(1);
+        assertThat(histogram.getCount(FRAGMENT, CONTROLLER,
+                ControllerLatencyHistogram.METHOD_UPDATE_STATE, 2)).isEqualTo(1);
+        final JSONObject updateState = histogram.dump().getJSONObject("fragments")
+                .getJSONObject(FRAGMENT)
+                .getJSONObject(CONTROLLER)
+                .getJSONObject(ControllerLatencyHistogram.METHOD_UPDATE_STATE);
+        assertThat(updateState.getInt("count")).isEqualTo(2);
+        assertThat(updateState.getLong("totalMicros")).isEqualTo(3100);
+        assertThat(updateState.getLong("maxMicros")).isEqualTo(3000);
+    }
+}
@@ -20,7 +20,10 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYH
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -32,12 +35,17 @@ import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.content.pm.ActivityInfo;
 import android.os.Bundle;
+import android.util.FeatureFlagUtils;
 
+import androidx.fragment.app.FragmentActivity;
 import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
+import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.FeatureFlags;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.slices.BlockingSlicePrefController;
 import com.android.settings.testutils.FakeFeatureFactory;
@@ -47,14 +55,18 @@ import com.android.settingslib.core.instrumentation.VisibilityLoggerMixin;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
 
+import org.json.JSONObject;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
@@ -62,6 +74,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 public class DashboardFragmentTest {
@@ -93,6 +106,14 @@ public class DashboardFragmentTest {
         mTestFragment.onAttach(RuntimeEnvironment.application);
         when(mContext.getPackageName()).thenReturn("TestPackage");
         mControllers = new ArrayList<>();
+        DashboardFragment.sStateComputeExecutor = Runnable::run;
+    }
+
+    @After
+    public void tearDown() {
+        DashboardFragment.sStateComputeExecutor = null;
+        FeatureFlagUtils.setEnabled(mContext, FeatureFlags.CONTROLLER_LATENCY, false);
+        ControllerLatencyHistogram.getInstance().clear();
     }
 
     @Test
@@ -161,6 +182,60 @@ public class DashboardFragmentTest {
         verify(mTestFragment.mScreen, never()).addPreference(nullable(Preference.class));
     }
 
+    @Test
+    public void refreshDashboardTiles_unchangedTile_shouldNotRebind() {
+        when(mFakeFeatureFactory.dashboardFeatureProvider
+                .getDashboardKeyForTile(nullable(Tile.class)))
+                .thenReturn("test_key");
+        mTestFragment.refreshDashboardTiles("TEST_FRAG");
+
+        mTestFragment.refreshDashboardTiles("TEST_FRAG");
+
+        verify(mTestFragment.mScreen).addPreference(nullable(Preference.class));
+        verify(mFakeFeatureFactory.dashboardFeatureProvider).bindPreferenceToTile(
+                nullable(FragmentActivity.class), anyBoolean(), anyInt(),
+                nullable(Preference.class), nullable(Tile.class), nullable(String.class),
+                anyInt());
+    }
+
+    @Test
+    public void refreshDashboardTiles_packageUpdated_shouldRebind() {
+        when(mFakeFeatureFactory.dashboardFeatureProvider
+                .getDashboardKeyForTile(nullable(Tile.class)))
+                .thenReturn("test_key");
+        mTestFragment.refreshDashboardTiles("TEST_FRAG");
+        // An updated package has its tiles resolved again with the same metadata.
+        mDashboardCategory.removeTile(0);
+        mDashboardCategory.addTile(new Tile(mActivityInfo, mDashboardCategory.key));
+
+        mTestFragment.refreshDashboardTiles("TEST_FRAG");
+
+        verify(mTestFragment.mScreen).addPreference(nullable(Preference.class));
+        verify(mFakeFeatureFactory.dashboardFeatureProvider, times(2)).bindPreferenceToTile(
+                nullable(FragmentActivity.class), anyBoolean(), anyInt(),
+                nullable(Preference.class), nullable(Tile.class), nullable(String.class),
+                anyInt());
+    }
+
+    @Test
+    public void refreshDashboardTiles_changedTile_shouldRebind() {
+        when(mFakeFeatureFactory.dashboardFeatureProvider
+                .getDashboardKeyForTile(nullable(Tile.class)))
+                .thenReturn("test_key");
+        mTestFragment.refreshDashboardTiles("TEST_FRAG");
+        mActivityInfo.metaData.putString("new_meta_data", "value");
+        mDashboardCategory.removeTile(0);
+        mDashboardCategory.addTile(new Tile(mActivityInfo, mDashboardCategory.key));
+
+        mTestFragment.refreshDashboardTiles("TEST_FRAG");
+
+        verify(mTestFragment.mScreen).addPreference(nullable(Preference.class));
+        verify(mFakeFeatureFactory.dashboardFeatureProvider, times(2)).bindPreferenceToTile(
+                nullable(FragmentActivity.class), anyBoolean(), anyInt(),
+                nullable(Preference.class), nullable(Tile.class), nullable(String.class),
+                anyInt());
+    }
+
     @Test
     public void onAttach_shouldCreatePlaceholderPreferenceController() {
         final AbstractPreferenceController controller = mTestFragment.use(
@@ -206,6 +281,102 @@ public class DashboardFragmentTest {
         verify(mockController2).getPreferenceKey();
     }
 
+    @Test
+    public void updateState_backgroundStateComputer_shouldComputeBeforeUpdate() {
+        final TestBackgroundController controller = new TestBackgroundController(mContext);
+        final Preference preference = new Preference(mContext);
+        when(mTestFragment.mScreen.findPreference(TestBackgroundController.KEY))
+                .thenReturn(preference);
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        assertThat(controller.mComputed).isTrue();
+        assertThat(controller.mUpdatedAfterCompute).isTrue();
+    }
+
+    @Test
+    public void updateState_backgroundStateNotComputed_shouldNotWait() {
+        final List<Runnable> pendingTasks = new ArrayList<>();
+        DashboardFragment.sStateComputeExecutor = pendingTasks::add;
+        final TestBackgroundController controller = new TestBackgroundController(mContext);
+        when(mTestFragment.mScreen.findPreference(TestBackgroundController.KEY))
+                .thenReturn(new Preference(mContext));
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        assertThat(pendingTasks).hasSize(1);
+        assertThat(controller.mUpdated).isFalse();
+    }
+
+    @Test
+    public void updateState_shouldUpdateInScreenOrder() {
+        final AbstractPreferenceController mockController1 =
+                mock(AbstractPreferenceController.class);
+        final AbstractPreferenceController mockController2 =
+                mock(TestPreferenceController.class);
+        // preference2 is shown first, inside a category, despite its larger order.
+        final Preference preference1 = new Preference(mContext);
+        preference1.setOrder(2);
+        final Preference preference2 = new Preference(mContext);
+        preference2.setOrder(3);
+        final PreferenceCategory category = mock(PreferenceCategory.class);
+        when(category.getPreferenceCount()).thenReturn(1);
+        when(category.getPreference(0)).thenReturn(preference2);
+        when(mTestFragment.mScreen.getPreferenceCount()).thenReturn(2);
+        when(mTestFragment.mScreen.getPreference(0)).thenReturn(category);
+        when(mTestFragment.mScreen.getPreference(1)).thenReturn(preference1);
+        when(mockController1.isAvailable()).thenReturn(true);
+        when(mockController1.getPreferenceKey()).thenReturn("key1");
+        when(mockController2.isAvailable()).thenReturn(true);
+        when(mockController2.getPreferenceKey()).thenReturn("key2");
+        when(mTestFragment.mScreen.findPreference("key1")).thenReturn(preference1);
+        when(mTestFragment.mScreen.findPreference("key2")).thenReturn(preference2);
+        mTestFragment.addPreferenceController(mockController1);
+        mTestFragment.addPreferenceController(mockController2);
+
+        mTestFragment.updatePreferenceStates();
+
+        final InOrder inOrder = inOrder(mockController1, mockController2);
+        inOrder.verify(mockController2).updateState(preference2);
+        inOrder.verify(mockController1).updateState(preference1);
+    }
+
+    @Test
+    public void updateState_controllerLatencyDisabled_shouldNotRecordLatency() throws Exception {
+        final TestBackgroundController controller = new TestBackgroundController(mContext);
+        when(mTestFragment.mScreen.findPreference(TestBackgroundController.KEY))
+                .thenReturn(new Preference(mContext));
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        assertThat(ControllerLatencyHistogram.getInstance().dump()
+                .getJSONObject("fragments").length()).isEqualTo(0);
+    }
+
+    @Test
+    public void updateState_controllerLatencyEnabled_shouldRecordLatency() throws Exception {
+        FeatureFlagUtils.setEnabled(mContext, FeatureFlags.CONTROLLER_LATENCY, true);
+        mTestFragment.onAttach(RuntimeEnvironment.application);
+        final TestBackgroundController controller = new TestBackgroundController(mContext);
+        when(mTestFragment.mScreen.findPreference(TestBackgroundController.KEY))
+                .thenReturn(new Preference(mContext));
+        mTestFragment.addPreferenceController(controller);
+
+        mTestFragment.updatePreferenceStates();
+
+        final JSONObject methods = ControllerLatencyHistogram.getInstance().dump()
+                .getJSONObject("fragments")
+                .getJSONObject(TestFragment.class.getSimpleName())
+                .getJSONObject(TestBackgroundController.class.getSimpleName());
+        assertThat(methods.getJSONObject(ControllerLatencyHistogram.METHOD_IS_AVAILABLE)
+                .getInt("count")).isEqualTo(1);
+        assertThat(methods.getJSONObject(ControllerLatencyHistogram.METHOD_UPDATE_STATE)
+                .getInt("count")).isEqualTo(1);
+    }
+
     @Test
     public void onExpandButtonClick_shouldLogAdvancedButtonExpand() {
         final MetricsFeatureProvider metricsFeatureProvider
@@ -229,6 +400,49 @@ public class DashboardFragmentTest {
         mTestFragment.updatePreferenceVisibility(prefControllers);
     }
 
+    @Test
+    public void updatePreferenceVisibility_blockerLate_shouldShowPlaceholderUntilRevealed() {
+        final TestUiBlockerController controller = new TestUiBlockerController(mContext);
+        final Map<Class, List<AbstractPreferenceController>> prefControllers = new HashMap<>();
+        prefControllers.put(TestUiBlockerController.class, Arrays.asList(controller));
+        when(mTestFragment.mScreen.findPreference(TestUiBlockerController.KEY))
+                .thenReturn(new Preference(mContext));
+        mTestFragment.mBlockerController = new UiBlockerController(
+                Arrays.asList(TestUiBlockerController.KEY), 100 /* timeout */, Runnable::run);
+        mTestFragment.mBlockerController.start(() -> {});
+        ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+
+        mTestFragment.updatePreferenceVisibility(prefControllers);
+
+        assertThat(controller.mPlaceholderCount).isEqualTo(1);
+        assertThat(controller.mUpdateCount).isEqualTo(0);
+
+        mTestFragment.mBlockerController.countDown(TestUiBlockerController.KEY);
+        mTestFragment.updatePreferenceVisibility(prefControllers);
+        mTestFragment.updatePreferenceVisibility(prefControllers);
+
+        assertThat(controller.mPlaceholderCount).isEqualTo(1);
+        assertThat(controller.mUpdateCount).isEqualTo(1);
+    }
+
+    @Test
+    public void updatePreferenceVisibility_blockerFinishedInTime_shouldNotUpdateStateAgain() {
+        final TestUiBlockerController controller = new TestUiBlockerController(mContext);
+        final Map<Class, List<AbstractPreferenceController>> prefControllers = new HashMap<>();
+        prefControllers.put(TestUiBlockerController.class, Arrays.asList(controller));
+        when(mTestFragment.mScreen.findPreference(TestUiBlockerController.KEY))
+                .thenReturn(new Preference(mContext));
+        mTestFragment.mBlockerController = new UiBlockerController(
+                Arrays.asList(TestUiBlockerController.KEY), 100 /* timeout */, Runnable::run);
+        mTestFragment.mBlockerController.start(() -> {});
+        mTestFragment.mBlockerController.countDown(TestUiBlockerController.KEY);
+
+        mTestFragment.updatePreferenceVisibility(prefControllers);
+
+        assertThat(controller.mPlaceholderCount).isEqualTo(0);
+        assertThat(controller.mUpdateCount).isEqualTo(0);
+    }
+
     @Test
     public void checkUiBlocker_noUiBlocker_controllerIsNull() {
         mTestFragment.mBlockerController = null;
@@ -277,6 +491,64 @@ public class DashboardFragmentTest {
         }
     }
 
+    public static class TestBackgroundController extends BasePreferenceController
+            implements BasePreferenceController.BackgroundStateComputer {
+
+        private static final String KEY = "background_key";
+
+        private volatile boolean mComputed;
+        private boolean mUpdated;
+        private boolean mUpdatedAfterCompute;
+
+        private TestBackgroundController(Context context) {
+            super(context, KEY);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return AVAILABLE;
+        }
+
+        @Override
+        public void computeState() {
+            mComputed = true;
+        }
+
+        @Override
+        public void updateState(Preference preference) {
+            mUpdated = true;
+            mUpdatedAfterCompute = mComputed;
+        }
+    }
+
+    public static class TestUiBlockerController extends BasePreferenceController
+            implements BasePreferenceController.UiBlocker {
+
+        private static final String KEY = "blocker_key";
+
+        private int mPlaceholderCount;
+        private int mUpdateCount;
+
+        private TestUiBlockerController(Context context) {
+            super(context, KEY);
+        }
+
+        @Override
+        public int getAvailabilityStatus() {
+            return AVAILABLE;
+        }
+
+        @Override
+        public void showPlaceholder(Preference preference) {
+            mPlaceholderCount++;
+        }
+
+        @Override
+        public void updateState(Preference preference) {
+            mUpdateCount++;
+        }
+    }
+
     public static class TestFragment extends DashboardFragment {
 
         private final PreferenceManager mPreferenceManager;
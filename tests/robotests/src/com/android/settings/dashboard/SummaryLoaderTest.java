@@ -20,6 +20,8 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_KEYH
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +43,9 @@ import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @RunWith(RobolectricTestRunner.class)
 public class SummaryLoaderTest {
 
@@ -52,6 +57,8 @@ public class SummaryLoaderTest {
     private boolean mCallbackInvoked;
     private Tile mTile;
     private FakeFeatureFactory mFeatureFactory;
+    private Activity mActivity;
+    private final List<Runnable> mPendingTasks = new ArrayList<>();
 
     @Before
     public void SetUp() {
@@ -65,9 +72,9 @@ public class SummaryLoaderTest {
         mTile.overrideSummary(SUMMARY_1);
         mCallbackInvoked = false;
 
-        final Activity activity = Robolectric.buildActivity(Activity.class).get();
+        mActivity = Robolectric.buildActivity(Activity.class).get();
 
-        mSummaryLoader = new SummaryLoader(activity, CategoryKey.CATEGORY_HOMEPAGE);
+        mSummaryLoader = new SummaryLoader(mActivity, CategoryKey.CATEGORY_HOMEPAGE);
         mSummaryLoader.setSummaryConsumer(tile -> mCallbackInvoked = true);
     }
 
@@ -111,4 +118,40 @@ public class SummaryLoaderTest {
 
         assertThat(tile.getSummary(mContext)).isEqualTo(testSummary);
     }
+
+    @Test
+    public void refreshSummaries_notListening_shouldNotLoadCategory() {
+        mSummaryLoader.refreshSummaries();
+
+        verifyZeroInteractions(mFeatureFactory.dashboardFeatureProvider);
+    }
+
+    @Test
+    public void setListening_changedBackBeforeApplied_shouldApplyLatestStateOnce() {
+        final SummaryLoader summaryLoader = new SummaryLoader(mActivity,
+                CategoryKey.CATEGORY_HOMEPAGE, new SummaryProviderExecutor(mPendingTasks::add));
+
+        summaryLoader.setListening(true);
+        summaryLoader.setListening(false);
+        summaryLoader.setListening(true);
+
+        assertThat(mPendingTasks).hasSize(1);
+        mPendingTasks.remove(0).run();
+        verify(mFeatureFactory.dashboardFeatureProvider)
+                .getTilesForCategory(CategoryKey.CATEGORY_HOMEPAGE);
+    }
+
+    @Test
+    public void setListening_stoppedBeforeApplied_shouldNotLoadCategory() {
+        final SummaryLoader summaryLoader = new SummaryLoader(mActivity,
+                CategoryKey.CATEGORY_HOMEPAGE, new SummaryProviderExecutor(mPendingTasks::add));
+
+        summaryLoader.setListening(true);
+        summaryLoader.setListening(false);
+
+        assertThat(mPendingTasks).hasSize(1);
+        mPendingTasks.remove(0).run();
+        verify(mFeatureFactory.dashboardFeatureProvider, never())
+                .getTilesForCategory(CategoryKey.CATEGORY_HOMEPAGE);
+    }
 }
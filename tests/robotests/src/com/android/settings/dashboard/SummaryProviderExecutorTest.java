@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+@RunWith(RobolectricTestRunner.class)
+public class SummaryProviderExecutorTest {
+
+    private final PriorityQueue<SummaryProviderExecutor.PrioritizedTask> mPendingTasks =
+            new PriorityQueue<>();
+    private final List<String> mRun = new ArrayList<>();
+    private SummaryProviderExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = new SummaryProviderExecutor(
+                task -> mPendingTasks.add((SummaryProviderExecutor.PrioritizedTask) task));
+    }
+
+    @Test
+    public void execute_sameQueue_shouldRunInOrder() {
+        final SummaryProviderExecutor.Queue queue = mExecutor.newQueue();
+
+        queue.execute(() -> mRun.add("1"));
+        queue.execute(() -> mRun.add("2"));
+        runAll();
+
+        assertThat(mRun).containsExactly("1", "2").inOrder();
+    }
+
+    @Test
+    public void execute_newerQueue_shouldRunFirst() {
+        final SummaryProviderExecutor.Queue olderQueue = mExecutor.newQueue();
+        final SummaryProviderExecutor.Queue newerQueue = mExecutor.newQueue();
+
+        olderQueue.execute(() -> mRun.add("older"));
+        newerQueue.execute(() -> mRun.add("newer"));
+        runAll();
+
+        assertThat(mRun).containsExactly("newer", "older").inOrder();
+    }
+
+    @Test
+    public void raisePriority_olderQueue_shouldRunFirst() {
+        final SummaryProviderExecutor.Queue olderQueue = mExecutor.newQueue();
+        final SummaryProviderExecutor.Queue newerQueue = mExecutor.newQueue();
+
+        olderQueue.raisePriority();
+        newerQueue.execute(() -> mRun.add("newer"));
+        olderQueue.execute(() -> mRun.add("older"));
+        runAll();
+
+        assertThat(mRun).containsExactly("older", "newer").inOrder();
+    }
+
+    @Test
+    public void cancel_shouldDropPendingTasks() {
+        final SummaryProviderExecutor.Queue queue = mExecutor.newQueue();
+        queue.execute(() -> mRun.add("1"));
+        queue.execute(() -> mRun.add("2"));
+
+        queue.cancel();
+        queue.execute(() -> mRun.add("3"));
+        runAll();
+
+        // The first task was already handed to the executor.
+        assertThat(mRun).containsExactly("1");
+    }
+
+    private void runAll() {
+        while (!mPendingTasks.isEmpty()) {
+            mPendingTasks.poll().run();
+        }
+    }
+}
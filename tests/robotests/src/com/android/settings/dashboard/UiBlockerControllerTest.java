@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class UiBlockerControllerTest {
+    private static final long DEADLINE = 100;
+    private static final String KEY_1 = "key1";
+    private static final String KEY_2 = "key2";
+
+    private AtomicInteger mRevealCount;
+    private UiBlockerController mController;
+
+    @Before
+    public void setUp() {
+        mRevealCount = new AtomicInteger();
+        mController = new UiBlockerController(Arrays.asList(KEY_1, KEY_2), DEADLINE,
+                Runnable::run);
+    }
+
+    @Test
+    public void countDown_allBlockersFinished_shouldShowPage() {
+        mController.start(mRevealCount::incrementAndGet);
+
+        mController.countDown(KEY_1);
+        assertThat(mController.isBlockerFinished()).isFalse();
+
+        mController.countDown(KEY_2);
+        assertThat(mController.isBlockerFinished()).isTrue();
+        assertThat(mController.isRevealed(KEY_1)).isTrue();
+        assertThat(mController.isRevealed(KEY_2)).isTrue();
+        assertThat(mRevealCount.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void deadline_blockerNotFinished_shouldShowPageWithoutRevealingIt() {
+        mController.start(mRevealCount::incrementAndGet);
+        mController.countDown(KEY_1);
+
+        ShadowLooper.idleMainLooper(DEADLINE, TimeUnit.MILLISECONDS);
+
+        assertThat(mController.isBlockerFinished()).isTrue();
+        assertThat(mController.isRevealed(KEY_1)).isTrue();
+        assertThat(mController.isRevealed(KEY_2)).isFalse();
+        assertThat(mRevealCount.get()).isEqualTo(1);
+
+        // Finishing late reveals the straggler.
+        mController.countDown(KEY_2);
+        assertThat(mController.isRevealed(KEY_2)).isTrue();
+        assertThat(mRevealCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void isRevealed_dependencyNotFinished_shouldReturnFalse() {
+        mController.setBlocker(KEY_2, DEADLINE, Collections.singletonList(KEY_1), null);
+        mController.start(mRevealCount::incrementAndGet);
+
+        mController.countDown(KEY_2);
+        assertThat(mController.isRevealed(KEY_2)).isFalse();
+
+        mController.countDown(KEY_1);
+        assertThat(mController.isRevealed(KEY_2)).isTrue();
+    }
+
+    @Test
+    public void start_blockerWithWork_shouldRunWorkAfterDependencies() {
+        final AtomicInteger workCount = new AtomicInteger();
+        mController.setBlocker(KEY_2, DEADLINE, Collections.singletonList(KEY_1),
+                workCount::incrementAndGet);
+        mController.start(mRevealCount::incrementAndGet);
+        assertThat(workCount.get()).isEqualTo(0);
+
+        mController.countDown(KEY_1);
+
+        assertThat(workCount.get()).isEqualTo(1);
+        assertThat(mController.isRevealed(KEY_2)).isTrue();
+        assertThat(mController.isBlockerFinished()).isTrue();
+    }
+
+    @Test
+    public void start_cyclicDependencies_shouldStillReveal() {
+        mController.setBlocker(KEY_1, DEADLINE, Collections.singletonList(KEY_2), null);
+        mController.setBlocker(KEY_2, DEADLINE, Collections.singletonList(KEY_1), null);
+        mController.start(mRevealCount::incrementAndGet);
+
+        mController.countDown(KEY_1);
+        mController.countDown(KEY_2);
+
+        assertThat(mController.isRevealed(KEY_1)).isTrue();
+        assertThat(mController.isRevealed(KEY_2)).isTrue();
+    }
+
+    @Test
+    public void setBlocker_shouldOnlyWaitForThatBlockerUntilItsDeadline() {
+        mController.setBlocker(KEY_2, DEADLINE * 2, Collections.emptyList(), null);
+        mController.start(mRevealCount::incrementAndGet);
+        mController.countDown(KEY_1);
+
+        ShadowLooper.idleMainLooper(DEADLINE, TimeUnit.MILLISECONDS);
+        assertThat(mController.isBlockerFinished()).isFalse();
+
+        ShadowLooper.idleMainLooper(DEADLINE, TimeUnit.MILLISECONDS);
+        assertThat(mController.isBlockerFinished()).isTrue();
+    }
+
+    @Test
+    public void countDown_shouldRemoveDeadline() {
+        mController = new UiBlockerController(Collections.singletonList(KEY_1), DEADLINE,
+                Runnable::run);
+        mController.start(mRevealCount::incrementAndGet);
+
+        mController.countDown(KEY_1);
+        ShadowLooper.runUiThreadTasks();
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void destroy_shouldRemoveDeadlinesAndNotReveal() {
+        final AtomicInteger workCount = new AtomicInteger();
+        mController.setBlocker(KEY_2, DEADLINE, Collections.singletonList(KEY_1),
+                workCount::incrementAndGet);
+        mController.start(mRevealCount::incrementAndGet);
+
+        mController.destroy();
+        mController.countDown(KEY_1);
+        ShadowLooper.idleMainLooper(DEADLINE, TimeUnit.MILLISECONDS);
+
+        assertThat(Robolectric.getForegroundThreadScheduler().size()).isEqualTo(0);
+        assertThat(workCount.get()).isEqualTo(0);
+        assertThat(mRevealCount.get()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardCheckerExecutorTest {
+
+    private static final int CHECKER_COUNT = 8;
+
+    @Test
+    public void invokeAll_shouldRunEveryCheckerAtOnce() throws Exception {
+        // Each checker only returns once all of them started.
+        final CountDownLatch started = new CountDownLatch(CHECKER_COUNT);
+        final List<Callable<Boolean>> checkers = new ArrayList<>();
+        for (int i = 0; i < CHECKER_COUNT; i++) {
+            checkers.add(() -> {
+                started.countDown();
+                return started.await(1, TimeUnit.SECONDS);
+            });
+        }
+
+        final List<Future<Boolean>> results =
+                CardCheckerExecutor.invokeAll(checkers, 2, TimeUnit.SECONDS);
+
+        for (Future<Boolean> result : results) {
+            assertThat(result.isCancelled()).isFalse();
+            assertThat(result.get()).isTrue();
+        }
+    }
+
+    @Test
+    public void getExecutor_shouldReturnSharedBoundedPool() {
+        final ThreadPoolExecutor executor =
+                (ThreadPoolExecutor) CardCheckerExecutor.getExecutor();
+
+        assertThat(CardCheckerExecutor.getExecutor()).isSameAs(executor);
+        assertThat(executor.getMaximumPoolSize()).isAtLeast(CHECKER_COUNT);
+        assertThat(executor.allowsCoreThreadTimeOut()).isTrue();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.slices.CustomSliceRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class ContextualCardListCacheTest {
+
+    private Context mContext;
+    private ContextualCardListCache mCache;
+    private List<ContextualCard> mCards;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new ContextualCardListCache(mContext);
+        mCards = Collections.singletonList(new ContextualCard.Builder()
+                .setName("test_wifi")
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(CustomSliceRegistry.CONTEXTUAL_WIFI_SLICE_URI)
+                .build());
+    }
+
+    @Test
+    public void putCards_shouldReturnCachedCards() {
+        mCache.putCards(mCache.getGeneration(), mCards);
+
+        assertThat(mCache.getCards()).containsExactlyElementsIn(mCards);
+    }
+
+    @Test
+    public void putCards_invalidatedSinceRead_shouldNotCache() {
+        final int generation = mCache.getGeneration();
+        mCache.invalidate();
+
+        mCache.putCards(generation, mCards);
+
+        assertThat(mCache.getCards()).isNull();
+    }
+
+    @Test
+    public void notifyRefreshCardUri_shouldInvalidate() {
+        mCache.putCards(mCache.getGeneration(), mCards);
+
+        mContext.getContentResolver().notifyChange(CardContentProvider.REFRESH_CARD_URI, null);
+
+        assertThat(mCache.getCards()).isNull();
+    }
+
+    @Test
+    public void notifyDeleteCardUri_shouldInvalidate() {
+        mCache.putCards(mCache.getGeneration(), mCards);
+
+        mContext.getContentResolver().notifyChange(CardContentProvider.DELETE_CARD_URI, null);
+
+        assertThat(mCache.getCards()).isNull();
+    }
+}
@@ -23,6 +23,8 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import android.content.Context;
 import android.net.Uri;
@@ -55,6 +57,7 @@ public class EligibleCardCheckerTest {
         mEligibleCardChecker =
                 spy(new EligibleCardChecker(mContext, getContextualCard(TEST_SLICE_URI)));
         SliceProvider.setSpecs(SliceLiveData.SUPPORTED_SPECS);
+        EligibleCardChecker.clearSliceStateCache();
     }
 
     @Test
@@ -146,6 +149,31 @@ public class EligibleCardCheckerTest {
                 .isFalse();
     }
 
+    @Test
+    public void isCardEligibleToDisplay_checkedBefore_shouldNotBindSliceAgain() {
+        final ContextualWifiSlice wifiSlice = new ContextualWifiSlice(mContext);
+        final Slice slice = wifiSlice.getSlice();
+        doReturn(slice).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        final boolean eligible =
+                mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        assertThat(eligible).isTrue();
+        assertThat(mEligibleCardChecker.mCard.hasInlineAction()).isTrue();
+        verify(mEligibleCardChecker, times(1)).bindSlice(any(Uri.class));
+    }
+
+    @Test
+    public void isCardEligibleToDisplay_sliceNotBound_shouldBindSliceAgain() {
+        doReturn(null).when(mEligibleCardChecker).bindSlice(any(Uri.class));
+
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+        mEligibleCardChecker.isCardEligibleToDisplay(getContextualCard(TEST_SLICE_URI));
+
+        verify(mEligibleCardChecker, times(2)).bindSlice(any(Uri.class));
+    }
+
     private ContextualCard getContextualCard(Uri sliceUri) {
         return new ContextualCard.Builder()
                 .setName("test_card")
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.database.Cursor;
+import android.database.CursorIndexOutOfBoundsException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class IndexableListCursorTest {
+
+    private static final String[] COLUMNS = {"name", "value"};
+
+    @Test
+    public void readRows_returnsValuesInOrder() {
+        final Cursor cursor = createCursor(Arrays.asList("a", "b"));
+
+        assertThat(cursor.getCount()).isEqualTo(2);
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getString(0)).isEqualTo("a");
+        assertThat(cursor.getInt(1)).isEqualTo(1);
+        assertThat(cursor.getString(1)).isEqualTo("1");
+        assertThat(cursor.moveToNext()).isTrue();
+        assertThat(cursor.getString(0)).isEqualTo("b");
+        assertThat(cursor.moveToNext()).isFalse();
+    }
+
+    @Test
+    public void nullValue_isNull() {
+        final Cursor cursor = createCursor(Arrays.asList((String) null));
+        cursor.moveToFirst();
+
+        assertThat(cursor.isNull(0)).isTrue();
+        assertThat(cursor.getType(0)).isEqualTo(Cursor.FIELD_TYPE_NULL);
+        assertThat(cursor.getType(1)).isEqualTo(Cursor.FIELD_TYPE_INTEGER);
+    }
+
+    @Test(expected = CursorIndexOutOfBoundsException.class)
+    public void getBeforeFirstRow_throws() {
+        createCursor(Arrays.asList("a")).getString(0);
+    }
+
+    private static Cursor createCursor(List<String> rows) {
+        return new IndexableListCursor<String>(COLUMNS, rows) {
+            @Override
+            Object getValue(String row, int column) {
+                return column == 0 ? row : rows.indexOf(row) + 1;
+            }
+        };
+    }
+}
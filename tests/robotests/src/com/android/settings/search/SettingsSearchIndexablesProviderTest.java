@@ -6,6 +6,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 
 import android.Manifest;
+import android.content.Context;
 import android.content.pm.ProviderInfo;
 import android.database.Cursor;
 import android.net.Uri;
@@ -23,7 +24,10 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 public class SettingsSearchIndexablesProviderTest {
@@ -115,4 +119,111 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(keys).hasSize(3);
         assertThat(keys).containsAllOf("pref_key_1", "pref_key_3", "pref_key_5");
     }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void queryNonIndexableKeysDelta_afterFullQuery_isEmpty() {
+        final Uri keysUri = Uri.parse("content://" + BASE_AUTHORITY + "/" +
+                SearchIndexablesContract.NON_INDEXABLES_KEYS_PATH);
+        mProvider.query(keysUri, SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS, null,
+                null, null).close();
+
+        try (Cursor cursor = mProvider.query(
+                SettingsSearchIndexablesProvider.NON_INDEXABLES_KEYS_DELTA_URI,
+                SettingsSearchIndexablesProvider.NON_INDEXABLES_KEYS_DELTA_COLUMNS, null, null,
+                null)) {
+            assertThat(cursor.getCount()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void queryNonIndexableKeysDelta_returnsAddedAndRemovedKeys() {
+        new NonIndexableKeysDeltaTracker(RuntimeEnvironment.application)
+                .recordEmitted(Arrays.asList("pref_key_1", "old_key"));
+
+        final List<String> added = new ArrayList<>();
+        final List<String> removed = new ArrayList<>();
+        try (Cursor cursor = mProvider.query(
+                SettingsSearchIndexablesProvider.NON_INDEXABLES_KEYS_DELTA_URI,
+                SettingsSearchIndexablesProvider.NON_INDEXABLES_KEYS_DELTA_COLUMNS, null, null,
+                null)) {
+            while (cursor.moveToNext()) {
+                if (cursor.getInt(1) == SettingsSearchIndexablesProvider.DELTA_ADDED) {
+                    added.add(cursor.getString(0));
+                } else {
+                    removed.add(cursor.getString(0));
+                }
+            }
+        }
+
+        assertThat(added).containsExactly("pref_key_3", "pref_key_5");
+        assertThat(removed).containsExactly("old_key");
+    }
+
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void getNonIndexableKeysInParallel_matchesSerialKeys() {
+        final List<Class> values = new ArrayList<>();
+        values.add(FakeSettingsFragment.class);
+
+        final List<String> keys = mProvider.getNonIndexableKeysInParallel(
+                RuntimeEnvironment.application, values);
+
+        assertThat(keys).containsExactly("pref_key_1", "pref_key_3", "pref_key_5");
+    }
+
+    @Test
+    public void getNonIndexableKeysInParallel_providerTimesOut_usesLastKnownKeys() {
+        final List<Class> values = new ArrayList<>();
+        values.add(SlowSettingsFragment.class);
+        SettingsSearchIndexablesProvider.sLastKnownNonIndexableKeys.put(
+                SlowSettingsFragment.class.getName(), Arrays.asList("last_known_key"));
+
+        try {
+            final List<String> keys = mProvider.getNonIndexableKeysInParallel(
+                    RuntimeEnvironment.application, values);
+
+            assertThat(keys).containsExactly("last_known_key");
+        } finally {
+            SlowSettingsFragment.sRelease.countDown();
+            SettingsSearchIndexablesProvider.sLastKnownNonIndexableKeys.clear();
+        }
+    }
+
+    @Test
+    public void getNonIndexableKeysInParallel_providerTimesOutWithoutLastKnownKeys_waitsForKeys() {
+        final List<Class> values = new ArrayList<>();
+        values.add(SlowSettingsFragment.class);
+        SettingsSearchIndexablesProvider.sLastKnownNonIndexableKeys.clear();
+
+        try {
+            final List<String> keys = mProvider.getNonIndexableKeysInParallel(
+                    RuntimeEnvironment.application, values);
+
+            assertThat(keys).containsExactly("new_key");
+        } finally {
+            SettingsSearchIndexablesProvider.sLastKnownNonIndexableKeys.clear();
+        }
+    }
+
+    public static class SlowSettingsFragment {
+
+        static final CountDownLatch sRelease = new CountDownLatch(1);
+
+        public static final Indexable.SearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
+                new BaseSearchIndexProvider() {
+                    @Override
+                    public List<String> getNonIndexableKeys(Context context) {
+                        try {
+                            sRelease.await(
+                                    SettingsSearchIndexablesProvider.PROVIDER_TIMEOUT_MS * 4,
+                                    TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException e) {
+                            // Cancelled by the timeout.
+                        }
+                        return new ArrayList<>(Arrays.asList("new_key"));
+                    }
+                };
+    }
 }
@@ -174,6 +174,38 @@ public class SettingsSliceProviderTest {
         assertThat(data.getTitle()).isEqualTo(TITLE);
     }
 
+    @Test
+    public void bindIndexedSlice_sliceDataInMemory_returnsBuiltSlice() {
+        insertSpecialCase(KEY);
+        final Uri uri = SliceBuilderUtils.getUri(INTENT_PATH, false);
+        mProvider.mSlicesDatabaseAccessor.getSliceDataFromKey(KEY);
+
+        final Slice slice = mProvider.bindIndexedSlice(uri);
+
+        assertThat(slice.getUri()).isEqualTo(uri);
+        assertThat(slice.getItems()).isNotEmpty();
+        verify(mProvider).registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(uri));
+    }
+
+    @Test
+    public void bindIndexedSlice_sliceDataInMemory_cachesSliceData() {
+        insertSpecialCase(KEY);
+        final Uri uri = SliceBuilderUtils.getUri(INTENT_PATH, false);
+        mProvider.mSlicesDatabaseAccessor.getSliceDataFromKey(KEY);
+
+        mProvider.bindIndexedSlice(uri);
+
+        assertThat(mProvider.mSliceWeakDataCache.get(uri).getKey()).isEqualTo(KEY);
+    }
+
+    @Test
+    public void bindIndexedSlice_sliceDataNotInMemory_returnsNull() {
+        insertSpecialCase(KEY);
+        final Uri uri = SliceBuilderUtils.getUri(INTENT_PATH, false);
+
+        assertThat(mProvider.bindIndexedSlice(uri)).isNull();
+    }
+
     @Test
     public void loadSlice_registersIntentFilter() {
         insertSpecialCase(KEY);
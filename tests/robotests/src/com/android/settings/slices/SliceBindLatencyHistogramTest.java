@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceBindLatencyHistogramTest {
+
+    private static final String KEY = "key";
+
+    @Test
+    public void record_countsPerKey() throws Exception {
+        final SliceBindLatencyHistogram histogram = new SliceBindLatencyHistogram();
+
+        histogram.record(KEY, TimeUnit.MILLISECONDS.toNanos(1));
+        histogram.record(KEY, TimeUnit.MILLISECONDS.toNanos(2));
+        histogram.recordFallback(KEY);
+
+        assertThat(histogram.getCount(KEY, 0)).isEqualTo(2);
+        final JSONObject dump = histogram.dump();
+        assertThat(dump.getJSONObject("keys").getJSONObject(KEY).getInt("fallbacks"))
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceDataCacheTest {
+
+    private static final String KEY_1 = "key1";
+    private static final String KEY_2 = "key2";
+
+    private SliceData mSliceData1;
+    private SliceData mSliceData2;
+
+    @Before
+    public void setUp() {
+        mSliceData1 = buildSliceData(KEY_1);
+        mSliceData2 = buildSliceData(KEY_2);
+    }
+
+    @Test
+    public void put_entriesAvailable() {
+        final SliceDataCache cache = new SliceDataCache(SliceDataCache.MAX_SIZE_BYTES);
+
+        cache.put(cache.getGeneration(), mSliceData1);
+        cache.put(cache.getGeneration(), mSliceData2);
+
+        assertThat(cache.get(KEY_1)).isSameAs(mSliceData1);
+        assertThat(cache.get(KEY_2)).isSameAs(mSliceData2);
+    }
+
+    @Test
+    public void put_invalidatedSinceRead_notCached() {
+        final SliceDataCache cache = new SliceDataCache(SliceDataCache.MAX_SIZE_BYTES);
+        final int generation = cache.getGeneration();
+
+        cache.invalidate();
+        cache.put(generation, mSliceData1);
+
+        assertThat(cache.get(KEY_1)).isNull();
+    }
+
+    @Test
+    public void put_overMaxSize_evictsLeastRecentlyUsed() {
+        final SliceDataCache cache = new SliceDataCache(
+                SliceDataCache.getSizeEstimate(mSliceData1));
+
+        cache.put(cache.getGeneration(), mSliceData1);
+        cache.put(cache.getGeneration(), mSliceData2);
+
+        assertThat(cache.get(KEY_1)).isNull();
+        assertThat(cache.get(KEY_2)).isSameAs(mSliceData2);
+    }
+
+    @Test
+    public void invalidate_dropsEntries() {
+        final SliceDataCache cache = new SliceDataCache(SliceDataCache.MAX_SIZE_BYTES);
+        cache.put(cache.getGeneration(), mSliceData1);
+
+        cache.invalidate();
+
+        assertThat(cache.get(KEY_1)).isNull();
+    }
+
+    @Test
+    public void dump_countsHitsAndMisses() throws Exception {
+        final SliceDataCache cache = new SliceDataCache(SliceDataCache.MAX_SIZE_BYTES);
+        cache.put(cache.getGeneration(), mSliceData1);
+
+        cache.get(KEY_1);
+        cache.get(KEY_2);
+
+        final JSONObject dump = cache.dump();
+        assertThat(dump.getInt("hits")).isEqualTo(1);
+        assertThat(dump.getInt("misses")).isEqualTo(1);
+    }
+
+    private SliceData buildSliceData(String key) {
+        return new SliceData.Builder()
+                .setKey(key)
+                .setTitle("title")
+                .setFragmentName("fragment")
+                .setPreferenceControllerClassName("controller")
+                .build();
+    }
+}
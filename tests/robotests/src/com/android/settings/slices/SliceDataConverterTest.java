@@ -28,6 +28,7 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.ServiceInfo;
+import android.os.Build;
 import android.text.TextUtils;
 
 import com.android.settings.R;
@@ -45,9 +46,12 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 @RunWith(RobolectricTestRunner.class)
 public class SliceDataConverterTest {
@@ -112,6 +116,56 @@ public class SliceDataConverterTest {
         }
     }
 
+    @Test
+    @Config(qualifiers = "mcc999")
+    public void testFakeProvider_parallelConversion_convertsFakeData() {
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(FakeIndexProvider.class);
+        doReturn(true).when(mFakeFeatureFactory.slicesFeatureProvider)
+                .isParallelSliceConversionEnabled(any(Context.class));
+
+        List<SliceData> sliceDataList = mSliceDataConverter.getSliceDataForSources(
+                null /* sources */);
+
+        assertThat(sliceDataList).hasSize(1);
+        assertFakeSlice(sliceDataList.get(0));
+    }
+
+    @Test
+    public void getSharedFingerprint_buildChanged_shouldChange() {
+        final String buildFingerprint = Build.FINGERPRINT;
+        final long sharedFingerprint = mSliceDataConverter.getSharedFingerprint();
+
+        ReflectionHelpers.setStaticField(Build.class, "FINGERPRINT", buildFingerprint + "_new");
+        try {
+            assertThat(mSliceDataConverter.getSharedFingerprint())
+                    .isNotEqualTo(sharedFingerprint);
+        } finally {
+            ReflectionHelpers.setStaticField(Build.class, "FINGERPRINT", buildFingerprint);
+        }
+    }
+
+    @Test
+    public void testConvertInParallel_keepsConversionOrder() throws Exception {
+        final SliceData.Builder builder = new SliceData.Builder()
+                .setTitle(FAKE_TITLE)
+                .setFragmentName(FAKE_FRAGMENT_CLASSNAME)
+                .setPreferenceControllerClassName(FAKE_CONTROLLER_NAME);
+        final List<Callable<List<SliceData>>> conversions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final SliceData data = builder.setKey(FAKE_KEY + i).build();
+            conversions.add(() -> Collections.singletonList(data));
+        }
+
+        final List<SliceData> sliceDataList = mSliceDataConverter.convertInParallel(conversions);
+
+        assertThat(sliceDataList).hasSize(20);
+        for (int i = 0; i < 20; i++) {
+            assertThat(sliceDataList.get(i).getKey()).isEqualTo(FAKE_KEY + i);
+        }
+    }
+
     private void assertFakeSlice(SliceData fakeSlice) {
         assertThat(fakeSlice.getKey()).isEqualTo(FAKE_KEY);
         assertThat(fakeSlice.getTitle()).isEqualTo(FAKE_TITLE);
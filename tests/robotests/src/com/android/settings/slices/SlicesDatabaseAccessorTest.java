@@ -157,6 +157,45 @@ public class SlicesDatabaseAccessorTest {
         assertThat(data.getPreferenceController()).isEqualTo(FAKE_CONTROLLER_NAME);
     }
 
+    @Test
+    public void testGetCachedSliceDataFromUri_notLookedUp_returnsNull() {
+        String key = "key";
+        insertSpecialCase(key);
+        Uri uri = SliceBuilderUtils.getUri("intent/" + key, false);
+
+        assertThat(mAccessor.getCachedSliceDataFromUri(uri)).isNull();
+    }
+
+    @Test
+    public void testGetCachedSliceDataFromUri_lookedUp_returnsDataWithUri() {
+        String key = "key";
+        insertSpecialCase(key);
+        Uri uri = SliceBuilderUtils.getUri("intent/" + key, false);
+        mAccessor.getSliceDataFromKey(key);
+
+        SliceData data = mAccessor.getCachedSliceDataFromUri(uri);
+
+        assertThat(data.getKey()).isEqualTo(key);
+        assertThat(data.getUri()).isEqualTo(uri);
+        assertThat(data.getSliceType()).isEqualTo(SliceData.SliceType.INTENT);
+    }
+
+    @Test
+    public void testGetCachedSliceDataFromUri_localeNotIndexed_returnsNull() {
+        String key = "key";
+        insertSpecialCase(key);
+        Uri uri = SliceBuilderUtils.getUri("intent/" + key, false);
+        mAccessor.getSliceDataFromKey(key);
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.CANADA_FRENCH);
+
+        try {
+            assertThat(mAccessor.getCachedSliceDataFromUri(uri)).isNull();
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
     @Test(expected = IllegalStateException.class)
     public void testGetSliceFromUri_invalidUri_errorThrown() {
         Uri uri = SliceBuilderUtils.getUri("intent/durr", false);
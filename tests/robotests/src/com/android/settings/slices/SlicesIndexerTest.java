@@ -18,8 +18,11 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 import android.content.ContentValues;
 import android.content.Context;
@@ -38,7 +41,10 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @RunWith(RobolectricTestRunner.class)
 public class SlicesIndexerTest {
@@ -151,6 +157,123 @@ public class SlicesIndexerTest {
         }
     }
 
+    @Test
+    public void testInsertSliceData_missingOptionalValues_insertsNulls() {
+        final SliceData sliceData = new SliceData.Builder()
+                .setKey(KEYS[0])
+                .setTitle(TITLES[0])
+                .setScreenTitle(SCREEN_TITLE)
+                .setFragmentName(FRAGMENT_NAME)
+                .setUri(URI)
+                .setPreferenceControllerClassName(PREF_CONTROLLER)
+                .build();
+        doReturn(Collections.singletonList(sliceData)).when(mManager).getSliceData();
+
+        mManager.run();
+
+        final SQLiteDatabase db = SlicesDatabaseHelper.getInstance(mContext).getWritableDatabase();
+        try (final Cursor cursor = db.rawQuery("SELECT * FROM slices_index", null)) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(cursor.isNull(cursor.getColumnIndex(IndexColumns.SUMMARY))).isTrue();
+            assertThat(cursor.isNull(cursor.getColumnIndex(IndexColumns.KEYWORDS))).isTrue();
+            assertThat(cursor.isNull(
+                    cursor.getColumnIndex(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE))).isTrue();
+            assertThat(cursor.getInt(cursor.getColumnIndex(IndexColumns.PLATFORM_SLICE)))
+                    .isEqualTo(0 /* false */);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testIndexSliceData_sourceUnchanged_keepsIndexedData() {
+        final Map<String, Long> fingerprints = new HashMap<>();
+        fingerprints.put(FRAGMENT_NAME, 1L);
+        doReturn(getDummyIndexableData()).when(mManager).getSliceData();
+        doReturn(fingerprints).when(mManager).getSourceFingerprints();
+        doReturn(1L).when(mManager).getSharedFingerprint();
+        mManager.run();
+
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        clearIndexedState();
+        doReturn(new ArrayList<SliceData>()).when(mManager).getSliceData(anySet());
+        mManager.run();
+
+        final SQLiteDatabase db = helper.getWritableDatabase();
+        try (final Cursor cursor = db.rawQuery("SELECT * FROM slices_index", null)) {
+            assertThat(cursor.getCount()).isEqualTo(KEYS.length);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testIndexSliceData_sourceChanged_replacesIndexedData() {
+        final Map<String, Long> fingerprints = new HashMap<>();
+        fingerprints.put(FRAGMENT_NAME, 1L);
+        doReturn(getDummyIndexableData()).when(mManager).getSliceData();
+        doReturn(fingerprints).when(mManager).getSourceFingerprints();
+        doReturn(1L).when(mManager).getSharedFingerprint();
+        mManager.run();
+
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        clearIndexedState();
+        final String newTitle = "newTitle";
+        final SliceData newData = new SliceData.Builder()
+                .setKey(KEYS[0])
+                .setTitle(newTitle)
+                .setFragmentName(FRAGMENT_NAME)
+                .setUri(URI)
+                .setPreferenceControllerClassName(PREF_CONTROLLER)
+                .build();
+        doReturn(Collections.singletonMap(FRAGMENT_NAME, 2L)).when(mManager)
+                .getSourceFingerprints();
+        doReturn(Collections.singletonList(newData)).when(mManager).getSliceData(anySet());
+        mManager.run();
+
+        final SQLiteDatabase db = helper.getWritableDatabase();
+        try (final Cursor cursor = db.rawQuery("SELECT * FROM slices_index", null)) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(cursor.getString(cursor.getColumnIndex(IndexColumns.TITLE)))
+                    .isEqualTo(newTitle);
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testIndexSliceData_sharedFingerprintChanged_rebuildsIndex() {
+        final Map<String, Long> fingerprints = new HashMap<>();
+        fingerprints.put(FRAGMENT_NAME, 1L);
+        doReturn(getDummyIndexableData()).when(mManager).getSliceData();
+        doReturn(fingerprints).when(mManager).getSourceFingerprints();
+        doReturn(1L).when(mManager).getSharedFingerprint();
+        mManager.run();
+
+        final SlicesDatabaseHelper helper = SlicesDatabaseHelper.getInstance(mContext);
+        clearIndexedState();
+        doReturn(2L).when(mManager).getSharedFingerprint();
+        doReturn(new ArrayList<SliceData>()).when(mManager).getSliceData();
+        mManager.run();
+
+        verify(mManager, never()).getSliceData(anySet());
+        final SQLiteDatabase db = helper.getWritableDatabase();
+        try (final Cursor cursor = db.rawQuery("SELECT * FROM slices_index", null)) {
+            assertThat(cursor.getCount()).isEqualTo(0);
+        } finally {
+            db.close();
+        }
+    }
+
+    private void clearIndexedState() {
+        mContext.getSharedPreferences("slices_shared_prefs", Context.MODE_PRIVATE)
+                .edit()
+                .clear()
+                .commit();
+    }
+
     private void insertSpecialCase(String key, String title) {
         final ContentValues values = new ContentValues();
         values.put(IndexColumns.KEY, key);